@@ -0,0 +1,48 @@
+package ndpdar;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of the examples to NDPDAr by NDPDAr(NDPDA), compared with
+ * PackedNDPDAr that doesn't create the converted rules.
+ *
+ * @author luciedvorakova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+    @Param({"EXAMPLE1", "EXAMPLE2", "EXAMPLE3"})
+    public Example example;
+
+    private NDPDA automaton;
+
+    @Setup
+    public void setup() {
+        automaton = example.original();
+    }
+
+    @Benchmark
+    public NDPDAr conversion() {
+        return new NDPDAr(automaton);
+    }
+
+    @Benchmark
+    public PackedNDPDAr packed() {
+        return new PackedNDPDAr(automaton);
+    }
+}
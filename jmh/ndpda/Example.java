@@ -0,0 +1,63 @@
+package ndpdar;
+
+import java.util.List;
+
+/**
+ * Automata from RunExample used by the benchmarks, together with the
+ * input they accept and rules leading to acceptance. Example 1 and 3
+ * are converted to NDPDAr, example 2 is used as NDPDA (its conversion
+ * creates too many rules).
+ *
+ * @author luciedvorakova
+ */
+public enum Example {
+    EXAMPLE1, EXAMPLE2, EXAMPLE3;
+
+    /**
+    * @return Original automaton, setting is done
+    */
+    public NDPDA original() {
+        switch(this) {
+            case EXAMPLE1:
+                return RunExample.createExample1();
+            case EXAMPLE2:
+                return RunExample.createExample2();
+            default:
+                return RunExample.createExample3();
+        }
+    }
+
+    /**
+    * @return Automaton that is simulated, setting is done
+    */
+    public NDPDA automaton() {
+        if(this == EXAMPLE2) {
+            return original();
+        }
+        NDPDAr reduced = new NDPDAr(original());
+        reduced.automatSettingDone();
+        return reduced;
+    }
+
+    public String input() {
+        switch(this) {
+            case EXAMPLE1:
+                return RunExample.EXAMPLE1_INPUT;
+            case EXAMPLE2:
+                return RunExample.EXAMPLE2_INPUT;
+            default:
+                return RunExample.EXAMPLE3_INPUT;
+        }
+    }
+
+    public List<Integer> rules() {
+        switch(this) {
+            case EXAMPLE1:
+                return RunExample.EXAMPLE1_RULES;
+            case EXAMPLE2:
+                return RunExample.EXAMPLE2_RULES;
+            default:
+                return RunExample.EXAMPLE3_RULES;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ndpdar;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Setting of the automaton: reading the definition (GrammarFile),
+ * automatSettingDone() on newly read automaton and compilation.
+ *
+ * @author luciedvorakova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SettingBenchmark {
+    @Param({"EXAMPLE1", "EXAMPLE2", "EXAMPLE3"})
+    public Example example;
+
+    private String definition;
+    private NDPDA automaton;
+    private NDPDA read;
+
+    @Setup
+    public void setup() throws IOException {
+        automaton = example.automaton();
+        StringWriter writer = new StringWriter();
+        GrammarFile.write(automaton, writer);
+        definition = writer.toString();
+    }
+
+    /**
+    * Every automatSettingDone() gets automaton whose setting isn't done.
+    */
+    @Setup(Level.Invocation)
+    public void readAutomaton() throws IOException {
+        read = GrammarFile.read(new StringReader(definition));
+    }
+
+    @Benchmark
+    public NDPDA read() throws IOException {
+        return GrammarFile.read(new StringReader(definition));
+    }
+
+    @Benchmark
+    public NDPDA automatSettingDone() {
+        read.automatSettingDone();
+        return read;
+    }
+
+    @Benchmark
+    public CompiledNDPDA compile() {
+        return CompiledNDPDA.compile(automaton);
+    }
+}
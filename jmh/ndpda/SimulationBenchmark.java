@@ -0,0 +1,88 @@
+package ndpdar;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulation of the examples on their accepted input: replay of given
+ * rules (Execution, also in incremental mode), search on objects
+ * (NDPDA.search()), search on compiled automaton and SpanChecker.
+ * Benchmark fails if the input isn't accepted.
+ *
+ * @author luciedvorakova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"EXAMPLE1", "EXAMPLE2", "EXAMPLE3"})
+    public Example example;
+
+    private NDPDA automaton;
+    private CompiledNDPDA compiled;
+    private SpanChecker checker;
+    private String input;
+    private List<Integer> rulesNum;
+
+    @Setup
+    public void setup() {
+        automaton = example.automaton();
+        compiled = automaton.compile();
+        checker = new SpanChecker(automaton);
+        input = example.input();
+        rulesNum = example.rules();
+    }
+
+    @Benchmark
+    public boolean replay() {
+        return accepted(new Execution(automaton).run(input, rulesNum));
+    }
+
+    @Benchmark
+    public boolean incrementalReplay() {
+        Execution execution = new Execution(automaton);
+        execution.setIncremental(true);
+        return accepted(execution.run(input, rulesNum));
+    }
+
+    @Benchmark
+    public List<Integer> search() {
+        return accepted(automaton.search(input));
+    }
+
+    @Benchmark
+    public List<Integer> compiledSearch() {
+        return accepted(compiled.simulate(input));
+    }
+
+    @Benchmark
+    public List<Integer> spanTable() {
+        return accepted(checker.check(input));
+    }
+
+    private boolean accepted(boolean accepted) {
+        if(!accepted) {
+            throw new IllegalStateException(example + " doesn't accept its input.");
+        }
+        return accepted;
+    }
+
+    private List<Integer> accepted(List<Integer> rules) {
+        accepted(rules != null);
+        return rules;
+    }
+}
@@ -0,0 +1,89 @@
+package ndpdar;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import ndpdar.NDPDA.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expansions by the accepting rules of the examples and popping
+ * of the whole stack, on objects (DeepPD) and on ids (CompiledPD).
+ *
+ * @author luciedvorakova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackBenchmark {
+    @Param({"EXAMPLE1", "EXAMPLE2", "EXAMPLE3"})
+    public Example example;
+
+    private NDPDA automaton;
+    private Rule[] rules;
+    private CompiledNDPDA compiled;
+    private CompiledPD compiledPD;
+    private int[] ruleIds;
+
+    @Setup
+    public void setup() {
+        automaton = example.automaton();
+        List<Rule> all = automaton.getExpansionRules();
+        List<Integer> rulesNum = example.rules();
+        rules = new Rule[rulesNum.size()];
+        for(int i = 0; i < rules.length; i++) {
+            rules[i] = all.get(rulesNum.get(i) - 1);
+        }
+        compiled = automaton.compile();
+        compiledPD = new CompiledPD(compiled.getNumOfNonInputSym(), compiled.getN(), 64);
+        ruleIds = new int[rulesNum.size()];
+        for(int i = 0; i < ruleIds.length; i++) {
+            ruleIds[i] = rulesNum.get(i) - 1;
+        }
+    }
+
+    @Benchmark
+    public int deepPD() {
+        DeepPD pd = new DeepPD(automaton.getStartPDSym());
+        for(Rule rule : rules) {
+            if(!pd.expand(rule)) {
+                throw new IllegalStateException("Rule can't be applied: " + rule);
+            }
+        }
+        int popped = 0;
+        while(!pd.isPDEmpty()) {
+            popped += pd.pop().getName().length();
+        }
+        return popped;
+    }
+
+    @Benchmark
+    public int compiledPD() {
+        CompiledPD pd = compiledPD;
+        pd.reset(compiled.getStartSym());
+        for(int rule : ruleIds) {
+            int depth = compiled.getRuleDepth(rule);
+            if(pd.numOfNonInput() < depth || pd.nonInputAt(depth) != compiled.getRuleFrom(rule)) {
+                throw new IllegalStateException("Rule can't be applied: " + (rule + 1));
+            }
+            pd.expand(depth, compiled.getRuleTo(rule));
+        }
+        int popped = 0;
+        while(!pd.isPDEmpty()) {
+            popped += pd.pop();
+        }
+        return popped;
+    }
+}
@@ -0,0 +1,82 @@
+package ndpdar;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Search on automata from GrammarGenerator, on accepted input and on
+ * rejected input of similar length. Grammar is given by n, number
+ * of non-input symbols |Γ|, maximal depth of rules (all depths are
+ * equally likely) and number of random rules of the derivation of the
+ * input, which determines length of the input.
+ *
+ * @author luciedvorakova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheticBenchmark {
+    @Param({"3", "5"})
+    public int n;
+
+    @Param({"2", "8"})
+    public int numOfSym;
+
+    @Param({"1", "2"})
+    public int depth;
+
+    @Param({"10", "40"})
+    public int steps;
+
+    private CompiledNDPDA compiled;
+    private String accepted;
+    private String rejected;
+
+    @Setup
+    public void setup() {
+        GrammarGenerator generator = new GrammarGenerator(steps);
+        generator.setN(n);
+        generator.setNumOfSym(numOfSym);
+        double[] weights = new double[depth];
+        Arrays.fill(weights, 1);
+        generator.setDepthWeights(weights);
+        NDPDA automaton = generator.generate();
+        GrammarGenerator.Sample sample = generator.accepted(automaton, steps);
+        accepted = sample.getInput();
+        rejected = generator.rejected(automaton, sample).getInput();
+        compiled = automaton.compile();
+    }
+
+    @Benchmark
+    public List<Integer> accepted() {
+        List<Integer> rules = compiled.simulate(accepted);
+        if(rules == null) {
+            throw new IllegalStateException("Generated input isn't accepted: " + accepted);
+        }
+        return rules;
+    }
+
+    @Benchmark
+    public List<Integer> rejected() {
+        List<Integer> rules = compiled.simulate(rejected);
+        if(rules != null) {
+            throw new IllegalStateException("Generated input is accepted: " + rejected);
+        }
+        return rules;
+    }
+}
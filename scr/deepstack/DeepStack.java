@@ -0,0 +1,155 @@
+package deepstack;
+
+/**
+ * Stack that allows access to the symbols in certain depth, not only
+ * on the top. Symbols are saved in doubly linked nodes, so the symbol
+ * can be pushed or popped at any known node without moving the others.
+ * Depth 0 is the top of the stack.
+ *
+ * @author luciedvorakova
+ * @param <T> type of saved data
+ */
+public class DeepStack<T> {
+    private Node<T> top = null;
+    private int size = 0;
+
+    /**
+    * Node of the stack.
+    * @param <T> type of saved data
+    */
+    public static class Node<T> {
+        final private T data;
+        private Node<T> up = null;
+        private Node<T> down = null;
+
+        Node(T data) {
+            this.data = data;
+        }
+
+        public T getData() {
+            return data;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(data);
+        }
+    }
+
+    /**
+    * Pushes data on the top of the stack.
+    * @param data pushed data
+    * @return Node with the data
+    */
+    public Node<T> push(T data) {
+        Node<T> node = new Node(data);
+        node.down = top;
+        if(top != null) {
+            top.up = node;
+        }
+        top = node;
+        size++;
+        return node;
+    }
+
+    /**
+    * Pushes data right below given node.
+    * @param data pushed data
+    * @param above node of this stack
+    * @return Node with the data
+    */
+    public Node<T> push(T data, Node<T> above) {
+        Node<T> node = new Node(data);
+        node.up = above;
+        node.down = above.down;
+        if(above.down != null) {
+            above.down.up = node;
+        }
+        above.down = node;
+        size++;
+        return node;
+    }
+
+    /**
+    * Pushes data so it is in given depth.
+    * @param data pushed data
+    * @param depth depth of the new node
+    * @return Node with the data
+    */
+    public Node<T> push(T data, int depth) {
+        if(depth == 0) {
+            return push(data);
+        }
+        return push(data, node(depth - 1));
+    }
+
+    /**
+    * Pops the top of the stack.
+    * @return Data of the top node
+    */
+    public T pop() {
+        return pop(top);
+    }
+
+    /**
+    * Pops node in given depth.
+    * @param depth depth of the node
+    * @return Data of the node
+    */
+    public T pop(int depth) {
+        return pop(node(depth));
+    }
+
+    /**
+    * Pops given node of this stack.
+    * @param node node of this stack
+    * @return Data of the node
+    */
+    public T pop(Node<T> node) {
+        if(node.up != null) {
+            node.up.down = node.down;
+        }
+        else {
+            top = node.down;
+        }
+        if(node.down != null) {
+            node.down.up = node.up;
+        }
+        size--;
+        return node.data;
+    }
+
+    public T peek() {
+        return top.data;
+    }
+
+    public T peek(int depth) {
+        return node(depth).data;
+    }
+
+    /**
+    * Node in given depth.
+    * @param depth depth of the node
+    * @return Node of the stack
+    */
+    public Node<T> node(int depth) {
+        Node<T> node = top;
+        for(int i = 0; i < depth; i++) {
+            node = node.down;
+        }
+        return node;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(Node<T> node = top; node != null; node = node.down) {
+            sb.append(node.data).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package ndpdar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Default tokenizer. Whitespaces are skipped and the longest input symbol
+ * of the automaton that matches the input is taken, e.g. with input symbols
+ * var, v, a and r the input "var" is one symbol var. Character that doesn't
+ * start any input symbol is UNKNOWN.
+ * 
+ * @author luciedvorakova
+ */
+public class AlphabetTokenizer implements Tokenizer {
+    final private Node root = new Node();
+    
+    /**
+    * Node of the trie of input symbols.
+    */
+    static private class Node {
+        final HashMap<Character, Node> next = new HashMap();
+        int sym = UNKNOWN;
+    }
+    
+    public AlphabetTokenizer(CompiledNDPDA automaton) {
+        SymbolTable symbols = automaton.getSymbols();
+        for(int sym = automaton.getNumOfNonInputSym(); sym < symbols.size(); sym++) {
+            Node node = root;
+            for(char c : symbols.name(sym).toCharArray()) {
+                node = node.next.computeIfAbsent(c, key -> new Node());
+            }
+            node.sym = sym;
+        }
+    }
+    
+    @Override
+    public int[] tokenize(CharSequence input) {
+        int[] tokens = new int[input.length()];
+        int size = 0;
+        int i = 0;
+        while(i < input.length()) {
+            if(Character.isWhitespace(input.charAt(i))) {
+                i++;
+                continue;
+            }
+            int sym = UNKNOWN;
+            int end = i + 1;
+            Node node = root;
+            for(int j = i; j < input.length() && node != null; j++) {
+                node = node.next.get(input.charAt(j));
+                if(node != null && node.sym != UNKNOWN) {
+                    sym = node.sym;
+                    end = j + 1;
+                }
+            }
+            tokens[size++] = sym;
+            i = end;
+        }
+        return Arrays.copyOf(tokens, size);
+    }
+}
@@ -0,0 +1,339 @@
+package ndpdar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file with compiled automaton, so the automaton (e.g. NDPDAr
+ * after long conversion) doesn't have to be created again at every start.
+ *
+ * File starts with the header (magic number, version, n, sizes of tables,
+ * start state, start symbol), followed by names of states and symbols
+ * (length and UTF-8 bytes) and end states. Rule table is saved as columns
+ * of ints: depth, start state, end state, expanded symbol and offsets of
+ * pushed symbols into the last column with all pushed symbols.
+ *
+ * The file is read through memory mapping, so loading is a fast
+ * deserializer, not a zero-copy view. map() decodes the header, names
+ * and end states to the heap and getters of rules read the columns of
+ * the mapped file (getRuleTo() copies pushed symbols of the rule).
+ * Search needs CompiledNDPDA, and load() and toCompiled() copy the
+ * whole rule table to its arrays on the heap, the mapping isn't used
+ * after that. The gain is that ints are copied in bulk instead of
+ * parsing the definition and converting the automaton again.
+ *
+ * @author luciedvorakova
+ */
+public class AutomatonFile {
+    static final public int MAGIC = 0x4E445044; // "NDPD"
+    static final public int VERSION = 1;
+
+    final private int n;
+    final private SymbolTable states = new SymbolTable();
+    final private SymbolTable symbols = new SymbolTable();
+    final private int numOfNonInputSym;
+    final private int startState;
+    final private int startSym;
+    final private boolean[] endStates;
+    final private int numOfRules;
+
+    // Columns of the rule table, views of the mapped file
+    final private IntBuffer ruleDepth;
+    final private IntBuffer ruleStart;
+    final private IntBuffer ruleEnd;
+    final private IntBuffer ruleFrom;
+    final private IntBuffer ruleToOffset;
+    final private IntBuffer ruleTo;
+
+    private AutomatonFile(MappedByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IOException("File doesn't contain compiled automaton.");
+        }
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of automaton file.");
+        }
+        // Every counted item takes at least 4 bytes of the file
+        int maxCount = buffer.capacity() / 4;
+        n = readInt(buffer, 0, maxCount);
+        int numOfStates = readInt(buffer, 1, maxCount);
+        int numOfSymbols = readInt(buffer, 1, maxCount);
+        numOfNonInputSym = readInt(buffer, 1, numOfSymbols);
+        startState = readInt(buffer, 0, numOfStates - 1);
+        startSym = readInt(buffer, 0, numOfNonInputSym - 1);
+        numOfRules = readInt(buffer, 0, maxCount - 1);
+        int numOfTo = readInt(buffer, 0, maxCount);
+
+        for(int i = 0; i < numOfStates; i++) {
+            if(states.intern(readName(buffer)) != i) {
+                throw corrupted();
+            }
+        }
+        for(int i = 0; i < numOfSymbols; i++) {
+            symbols.add(readName(buffer)); // names of input and non-input symbols can repeat
+        }
+        endStates = new boolean[numOfStates];
+        int numOfEndStates = readInt(buffer, 0, numOfStates);
+        for(int i = 0; i < numOfEndStates; i++) {
+            endStates[readInt(buffer, 0, numOfStates - 1)] = true;
+        }
+
+        ruleDepth = column(buffer, numOfRules);
+        ruleStart = column(buffer, numOfRules);
+        ruleEnd = column(buffer, numOfRules);
+        ruleFrom = column(buffer, numOfRules);
+        ruleToOffset = column(buffer, numOfRules + 1);
+        ruleTo = column(buffer, numOfTo);
+        checkRules(numOfStates, numOfSymbols, numOfTo);
+    }
+
+    /**
+    * Checks that ids in the rule table are in range of their tables,
+    * so the corrupted file isn't found only when the rule is used.
+    */
+    private void checkRules(int numOfStates, int numOfSymbols, int numOfTo) throws IOException {
+        for(int r = 0; r < numOfRules; r++) {
+            if(ruleStart.get(r) < 0 || ruleStart.get(r) >= numOfStates
+                    || ruleEnd.get(r) < 0 || ruleEnd.get(r) >= numOfStates
+                    || ruleFrom.get(r) < 0 || ruleFrom.get(r) >= numOfNonInputSym
+                    || ruleToOffset.get(r) > ruleToOffset.get(r + 1)) {
+                throw corrupted();
+            }
+        }
+        if(ruleToOffset.get(0) != 0 || ruleToOffset.get(numOfRules) != numOfTo) {
+            throw corrupted();
+        }
+        for(int i = 0; i < numOfTo; i++) {
+            if(ruleTo.get(i) < 0 || ruleTo.get(i) >= numOfSymbols) {
+                throw corrupted();
+            }
+        }
+    }
+
+    /**
+    * Saves compiled automaton to the file.
+    * @param automaton compiled automaton
+    * @param path file to write
+    * @throws IOException if the file can't be written
+    */
+    public static void save(CompiledNDPDA automaton, Path path) throws IOException {
+        SymbolTable states = automaton.getStates();
+        SymbolTable symbols = automaton.getSymbols();
+        int numOfRules = automaton.getNumOfRules();
+        int numOfTo = 0;
+        for(int r = 0; r < numOfRules; r++) {
+            numOfTo += automaton.getRuleTo(r).length;
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(automaton.getN());
+            out.writeInt(states.size());
+            out.writeInt(symbols.size());
+            out.writeInt(automaton.getNumOfNonInputSym());
+            out.writeInt(automaton.getStartState());
+            out.writeInt(automaton.getStartSym());
+            out.writeInt(numOfRules);
+            out.writeInt(numOfTo);
+
+            for(int i = 0; i < states.size(); i++) {
+                writeName(out, states.name(i));
+            }
+            for(int i = 0; i < symbols.size(); i++) {
+                writeName(out, symbols.name(i));
+            }
+            int numOfEndStates = 0;
+            for(int i = 0; i < states.size(); i++) {
+                if(automaton.isEndState(i)) {
+                    numOfEndStates++;
+                }
+            }
+            out.writeInt(numOfEndStates);
+            for(int i = 0; i < states.size(); i++) {
+                if(automaton.isEndState(i)) {
+                    out.writeInt(i);
+                }
+            }
+
+            for(int r = 0; r < numOfRules; r++) {
+                out.writeInt(automaton.getRuleDepth(r));
+            }
+            for(int r = 0; r < numOfRules; r++) {
+                out.writeInt(automaton.getRuleStart(r));
+            }
+            for(int r = 0; r < numOfRules; r++) {
+                out.writeInt(automaton.getRuleEnd(r));
+            }
+            for(int r = 0; r < numOfRules; r++) {
+                out.writeInt(automaton.getRuleFrom(r));
+            }
+            int offset = 0;
+            for(int r = 0; r < numOfRules; r++) {
+                out.writeInt(offset);
+                offset += automaton.getRuleTo(r).length;
+            }
+            out.writeInt(offset);
+            for(int r = 0; r < numOfRules; r++) {
+                for(int sym : automaton.getRuleTo(r)) {
+                    out.writeInt(sym);
+                }
+            }
+        }
+    }
+
+    /**
+    * Maps the file to the memory, rule table stays in the file until
+    * toCompiled() copies it.
+    * @param path file created by save()
+    * @return Mapped automaton file
+    * @throws IOException if the file can't be read or has wrong format
+    */
+    public static AutomatonFile map(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Mapping stays valid after the channel is closed
+            return new AutomatonFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+    * Loads compiled automaton from the file, whole automaton is copied
+    * to the heap (see toCompiled()).
+    * @param path file created by save()
+    * @return Compiled automaton
+    * @throws IOException if the file can't be read or has wrong format
+    */
+    public static CompiledNDPDA load(Path path) throws IOException {
+        return map(path).toCompiled();
+    }
+
+    /**
+    * Creates compiled automaton, rule table is copied to the heap.
+    * @return Compiled automaton
+    */
+    public CompiledNDPDA toCompiled() {
+        int[] depth = new int[numOfRules];
+        int[] start = new int[numOfRules];
+        int[] end = new int[numOfRules];
+        int[] from = new int[numOfRules];
+        ruleDepth.duplicate().get(depth);
+        ruleStart.duplicate().get(start);
+        ruleEnd.duplicate().get(end);
+        ruleFrom.duplicate().get(from);
+        int[][] to = new int[numOfRules][];
+        for(int r = 0; r < numOfRules; r++) {
+            to[r] = getRuleTo(r);
+        }
+        return new CompiledNDPDA(states, symbols, numOfNonInputSym, n,
+                startState, startSym, endStates.clone(), depth, start, end, from, to);
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readInt(buffer, 0, buffer.remaining() - 4)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+    * Reads int that has to be in range min .. max.
+    */
+    private static int readInt(ByteBuffer buffer, int min, int max) throws IOException {
+        if(buffer.remaining() < 4) {
+            throw corrupted();
+        }
+        int value = buffer.getInt();
+        if(value < min || value > max) {
+            throw corrupted();
+        }
+        return value;
+    }
+
+    private static IOException corrupted() {
+        return new IOException("Automaton file is corrupted.");
+    }
+
+    private static IntBuffer column(ByteBuffer buffer, int length) throws IOException {
+        if(buffer.remaining() < length * 4L) {
+            throw corrupted();
+        }
+        IntBuffer column = buffer.slice().asIntBuffer();
+        column.limit(length);
+        buffer.position(buffer.position() + length * 4);
+        return column;
+    }
+
+    /*
+    *   GETTERS
+    */
+    public int getN() {
+        return n;
+    }
+
+    public SymbolTable getStates() {
+        return states;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public int getNumOfNonInputSym() {
+        return numOfNonInputSym;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public int getStartSym() {
+        return startSym;
+    }
+
+    public boolean isEndState(int state) {
+        return endStates[state];
+    }
+
+    public int getNumOfRules() {
+        return numOfRules;
+    }
+
+    public int getRuleDepth(int rule) {
+        return ruleDepth.get(rule);
+    }
+
+    public int getRuleStart(int rule) {
+        return ruleStart.get(rule);
+    }
+
+    public int getRuleEnd(int rule) {
+        return ruleEnd.get(rule);
+    }
+
+    public int getRuleFrom(int rule) {
+        return ruleFrom.get(rule);
+    }
+
+    public int[] getRuleTo(int rule) {
+        int offset = ruleToOffset.get(rule);
+        int[] to = new int[ruleToOffset.get(rule + 1) - offset];
+        IntBuffer view = ruleTo.duplicate();
+        view.position(offset);
+        view.get(to);
+        return to;
+    }
+}
@@ -0,0 +1,724 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import ndpdar.NDPDA.Rule;
+import ndpdar.PDSymbol.Type;
+
+/**
+ * Compiled form of n-expandable Deep Pushdown Automaton. All states
+ * and pushdown symbols are interned to dense integer ids, so the search
+ * compares only primitive values. Non-input symbols get ids
+ * 0 .. numOfNonInputSym - 1 (bottom symbol # is always 0), input symbols
+ * get ids after them.
+ *
+ * Rules are kept in arrays indexed by rule number - 1, rule index
+ * is kept as array of rule ids for every depth, state and non-input symbol.
+ * Compiled automaton doesn't change after it is created, every search
+ * keeps its state for itself, so it can run in more threads at once.
+ *
+ * @author luciedvorakova
+ */
+public class CompiledNDPDA {
+    static final int BOTTOM = 0;
+    static final private int[] NO_RULES = new int[0];
+
+    final private SymbolTable states;
+    final private SymbolTable symbols;
+    final private int numOfNonInputSym;
+    final private Tokenizer tokenizer;
+
+    final private int n;
+    final private int startState;
+    final private int startSym;
+    final private boolean[] endStates;
+
+    final private int[] ruleDepth;
+    final private int[] ruleStart;
+    final private int[] ruleEnd;
+    final private int[] ruleFrom;
+    final private int[][] ruleTo;
+    final private int[] ruleNonInput; // number of non-input symbols in ruleTo
+    final private int[] ruleLength; // number of input symbols in ruleTo
+
+    // [depth - 1][state * numOfNonInputSym + symbol] -> rule ids
+    final private int[][][] ruleIndex;
+
+    // Searches can run in more threads, every search has its own cache
+    volatile private int cacheSize = ConfigurationCache.DEFAULT_SIZE;
+    final private LongAdder cacheHits = new LongAdder();
+    final private LongAdder cacheMisses = new LongAdder();
+    final private LongAdder cacheEvictions = new LongAdder();
+    volatile private Metrics metrics = null;
+
+    /**
+    * Compiles automaton, input symbols are split to characters, so
+    * the search accepts the same inputs as search on the objects
+    * (input symbol val is v a l, input "val" can be also v a l
+    * of three other symbols). Automaton setting has to be done.
+    * @param automaton automaton to compile
+    * @return Compiled automaton
+    */
+    static CompiledNDPDA compile(NDPDA automaton) {
+        return compile(automaton, false);
+    }
+
+    /**
+    * Compiles automaton. Automaton setting has to be done.
+    * @param automaton automaton to compile
+    * @param tokens true if every input symbol stays one symbol of
+    *          compiled automaton, false if it is split to characters
+    * @return Compiled automaton
+    */
+    static CompiledNDPDA compile(NDPDA automaton, boolean tokens) {
+        List<Rule> rules = automaton.getExpansionRules();
+        SymbolTable states = new SymbolTable();
+        SymbolTable symbols = new SymbolTable();
+
+        // Non-input symbols first
+        symbols.intern(PDSymbol.BOTTOM_NAME);
+        int startSym = symbols.intern(automaton.getStartPDSym().getName());
+        for(Rule rule : rules) {
+            symbols.intern(rule.fromSym.getName());
+            for(PDSymbol sym : rule.toSymbols) {
+                if(sym.getType() != Type.TERMINAL) {
+                    symbols.intern(sym.getName());
+                }
+            }
+        }
+        int numOfNonInputSym = symbols.size();
+        // Input symbol can have the same name as some non-input symbol
+        // (character of input symbol), so it is added with its own id
+        HashMap<String, Integer> inputIds = new HashMap();
+        for(Rule rule : rules) {
+            for(PDSymbol sym : rule.toSymbols) {
+                if(sym.getType() == Type.TERMINAL) {
+                    for(String name : inputNames(sym, tokens)) {
+                        inputIds.computeIfAbsent(name, symbols::add);
+                    }
+                }
+            }
+        }
+
+        int startState = states.intern(automaton.getStartState());
+        int size = rules.size();
+        int[] ruleDepth = new int[size];
+        int[] ruleStart = new int[size];
+        int[] ruleEnd = new int[size];
+        int[] ruleFrom = new int[size];
+        int[][] ruleTo = new int[size][];
+        for(int r = 0; r < size; r++) {
+            Rule rule = rules.get(r);
+            ruleDepth[r] = rule.depth;
+            ruleStart[r] = states.intern(rule.startState);
+            ruleEnd[r] = states.intern(rule.endState);
+            ruleFrom[r] = symbols.id(rule.fromSym.getName());
+            List<Integer> to = new ArrayList();
+            for(PDSymbol sym : rule.toSymbols) {
+                if(sym.getType() == Type.TERMINAL) {
+                    for(String name : inputNames(sym, tokens)) {
+                        to.add(inputIds.get(name));
+                    }
+                }
+                else {
+                    to.add(symbols.id(sym.getName()));
+                }
+            }
+            ruleTo[r] = new int[to.size()];
+            for(int i = 0; i < ruleTo[r].length; i++) {
+                ruleTo[r][i] = to.get(i);
+            }
+        }
+
+        boolean[] endStates = new boolean[states.size()];
+        for(String state : automaton.getEndStates()) {
+            int id = states.id(state);
+            if(id >= 0) {
+                endStates[id] = true;
+            }
+        }
+        return new CompiledNDPDA(states, symbols, numOfNonInputSym, automaton.getN(),
+                startState, startSym, endStates, ruleDepth, ruleStart, ruleEnd, ruleFrom, ruleTo);
+    }
+
+    /**
+    * Names of compiled input symbols for input symbol of the rule.
+    */
+    private static List<String> inputNames(PDSymbol sym, boolean tokens) {
+        if(tokens) {
+            return Arrays.asList(sym.getName());
+        }
+        List<String> names = new ArrayList();
+        for(char c : sym.getName().toCharArray()) {
+            names.add(String.valueOf(c));
+        }
+        return names;
+    }
+
+    /**
+    * Creates automaton from already interned states, symbols and rules
+    * (e.g. loaded by AutomatonFile). Rule with id r has number r + 1.
+    */
+    CompiledNDPDA(SymbolTable states, SymbolTable symbols, int numOfNonInputSym, int n,
+            int startState, int startSym, boolean[] endStates,
+            int[] ruleDepth, int[] ruleStart, int[] ruleEnd, int[] ruleFrom, int[][] ruleTo) {
+        this.states = states;
+        this.symbols = symbols;
+        this.numOfNonInputSym = numOfNonInputSym;
+        this.n = n;
+        this.startState = startState;
+        this.startSym = startSym;
+        this.endStates = endStates;
+        this.ruleDepth = ruleDepth;
+        this.ruleStart = ruleStart;
+        this.ruleEnd = ruleEnd;
+        this.ruleFrom = ruleFrom;
+        this.ruleTo = ruleTo;
+
+        int size = ruleTo.length;
+        ruleNonInput = new int[size];
+        ruleLength = new int[size];
+        for(int r = 0; r < size; r++) {
+            for(int sym : ruleTo[r]) {
+                if(sym < numOfNonInputSym) {
+                    ruleNonInput[r]++;
+                }
+                else {
+                    ruleLength[r]++;
+                }
+            }
+        }
+
+        ruleIndex = buildRuleIndex();
+        tokenizer = new AlphabetTokenizer(this);
+    }
+
+    /**
+    * Creates rule index, rules with depth bigger than n are left out.
+    * @return Rule ids by depth, state and non-input symbol
+    */
+    private int[][][] buildRuleIndex() {
+        int[][] counts = new int[n][states.size() * numOfNonInputSym];
+        for(int r = 0; r < ruleDepth.length; r++) {
+            if(ruleDepth[r] >= 1 && ruleDepth[r] <= n) {
+                counts[ruleDepth[r] - 1][key(ruleStart[r], ruleFrom[r])]++;
+            }
+        }
+        int[][][] index = new int[n][states.size() * numOfNonInputSym][];
+        for(int d = 0; d < n; d++) {
+            for(int k = 0; k < counts[d].length; k++) {
+                index[d][k] = counts[d][k] == 0 ? NO_RULES : new int[counts[d][k]];
+                counts[d][k] = 0;
+            }
+        }
+        for(int r = 0; r < ruleDepth.length; r++) {
+            if(ruleDepth[r] >= 1 && ruleDepth[r] <= n) {
+                int d = ruleDepth[r] - 1;
+                int k = key(ruleStart[r], ruleFrom[r]);
+                index[d][k][counts[d][k]++] = r;
+            }
+        }
+        return index;
+    }
+
+    private int key(int state, int sym) {
+        return state * numOfNonInputSym + sym;
+    }
+
+    /**
+    * Rules that can expand given non-input symbol in given depth.
+    * @param state current state id
+    * @param depth depth of the non-input symbol
+    * @param sym non-input symbol id
+    * @return Ids of applicable rules ordered by their number
+    */
+    int[] applicableRules(int state, int depth, int sym) {
+        if(depth < 1 || depth > n) {
+            return NO_RULES;
+        }
+        return ruleIndex[depth - 1][key(state, sym)];
+    }
+
+    /**
+    * Searches for the sequence of rules that leads to acceptance
+    * of the input, input is split to symbols by getTokenizer().
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> simulate(String input) {
+        return simulate(tokenizer.tokenize(input));
+    }
+
+    /**
+    * Searches for the sequence of rules that leads to acceptance
+    * of the input, input is split to symbols by given tokenizer.
+    * @param input String of input character
+    * @param tokenizer tokenizer created for this automaton
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> simulate(String input, Tokenizer tokenizer) {
+        return simulate(tokenizer.tokenize(input));
+    }
+
+    /**
+    * Searches for the sequence of rules that leads to acceptance
+    * of the input. Same as NDPDA.simulateHashed(String), but works
+    * on interned ids. Search is depth-first on single CompiledPD,
+    * every rule is undone when its branch fails. Configurations from
+    * which the search failed are saved in ConfigurationCache, 
+    * configurations on current path are never entered again.
+    * Configurations are identified by 64-bit hash, so the input can
+    * be rejected because of hash collision (very unlikely, see
+    * ConfigurationCache), found rules are always right.
+    * @param inputArray ids of input symbols
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton or the search
+    *          was cut by hash collision.
+    */
+    public List<Integer> simulate(int[] inputArray) {
+        return simulate(inputArray, new Workspace());
+    }
+
+    /**
+    * Searches for accepting rule sequences of all the inputs in parallel,
+    * see simulateAll(Collection, ExecutorService). Searches run
+    * in the common ForkJoinPool.
+    * @param inputs Strings of input characters
+    * @return Results in the same order as inputs
+    */
+    public List<Result> simulateAll(Collection<String> inputs) {
+        return simulateAll(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+    * Searches for accepting rule sequences of all the inputs in parallel.
+    * Every input is searched the same way as by simulate(String), so
+    * the results are the same as when inputs are simulated one by one.
+    * Every thread of the executor reuses its own stack, cache and frames
+    * for all the inputs it searches.
+    * @param inputs Strings of input characters
+    * @param executor executor running the searches
+    * @return Results in the same order as inputs
+    */
+    public List<Result> simulateAll(Collection<String> inputs, ExecutorService executor) {
+        ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+        List<Callable<Result>> tasks = new ArrayList();
+        for(String input : inputs) {
+            tasks.add(() -> new Result(input, simulate(tokenizer.tokenize(input), workspaces.get())));
+        }
+
+        List<Result> results = new ArrayList();
+        try {
+            for(Future<Result> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted", e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+        return results;
+    }
+
+    private List<Integer> simulate(int[] inputArray, Workspace ws) {
+        CompiledPD pd = ws.pd;
+        pd.reset(startSym);
+        int state = startState;
+        int length = 0; // number of input symbols on PD
+        int size = cacheSize;
+        if(ws.failed.getSize() != size) {
+            ws.failed = new ConfigurationCache(size);
+        }
+        ConfigurationCache failed = ws.failed;
+        failed.clear();
+        ws.path.clear();
+
+        ws.frameRule[0] = -1;
+        ws.frameDepth[0] = 1;
+        ws.frameNext[0] = 0;
+        ws.frameKey[0] = configurationKey(pd, state, 0);
+        ws.path.add(ws.frameKey[0]);
+        // Statistics of the previous search of the workspace aren't
+        // reported when the start configuration is accepting
+        ws.done(0, 0, pd.size(), pd.numOfNonInput());
+
+        Metrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        List<Integer> rules = null;
+        try {
+            rules = isAccepting(pd, state, length, inputArray) 
+                    ? new LinkedList() : search(ws, state, length, inputArray);
+            return rules;
+        }
+        finally {
+            cacheHits.add(failed.getHits());
+            cacheMisses.add(failed.getMisses());
+            cacheEvictions.add(failed.getEvictions());
+            if(m != null) {
+                m.searchDone(System.nanoTime() - start, ws.tried, ws.entered,
+                        ws.maxSize, ws.maxNonInput, rules != null);
+            }
+        }
+    }
+
+    /**
+    * Input symbols above the top-most non-input symbol are popped as soon as
+    * they match the input, so the stack only keeps the part of the input that
+    * isn't read yet and configuration is identified by state, stack and
+    * number of read input symbols. Popped symbols are pushed back before
+    * the rule that uncovered them is undone.
+    */
+    private List<Integer> search(Workspace ws, int state, int length, int[] inputArray) {
+        CompiledPD pd = ws.pd;
+        ConfigurationCache failed = ws.failed;
+        LongSet path = ws.path;
+        int[] frameRule = ws.frameRule;
+        int[] framePos = ws.framePos;
+        int[] frameDepth = ws.frameDepth;
+        int[] frameNext = ws.frameNext;
+        long[] frameKey = ws.frameKey;
+        int[] frameRead = ws.frameRead;
+        int read = 0; // number of popped input symbols
+        long tried = 0;
+        long entered = 0;
+        int maxSize = pd.size();
+        int maxNonInput = pd.numOfNonInput();
+        int top = 0;
+        while(top >= 0) {
+            boolean advanced = false;
+            while(!advanced && frameDepth[top] <= pd.numOfNonInput()) {
+                int depth = frameDepth[top];
+                int[] rules = applicableRules(state, depth, pd.nonInputAt(depth));
+                if(frameNext[top] >= rules.length) {
+                    frameDepth[top]++;
+                    frameNext[top] = 0;
+                    continue;
+                }
+                int r = rules[frameNext[top]++];
+                tried++;
+                // Applying the rule would exceed the nomber of non-input
+                // symbols on the pushdown.
+                if(pd.numOfNonInput() + ruleNonInput[r] - 1 > n) {
+                    continue;
+                }
+                int pos = pd.expand(depth, ruleTo[r]);
+                state = ruleEnd[r];
+                length += ruleLength[r];
+                long key = 0;
+                int popped = 0;
+                if(read + length <= inputArray.length && matchesPrefix(pd, inputArray, read)) {
+                    popped = pd.fixedTop();
+                    for(int k = 0; k < popped; k++) {
+                        pd.pop();
+                    }
+                    read += popped;
+                    length -= popped;
+                    key = configurationKey(pd, state, read);
+                }
+                if(key != 0 && !path.contains(key) && !failed.contains(key)) {
+                    if(++top == frameRule.length) {
+                        ws.grow();
+                        frameRule = ws.frameRule;
+                        framePos = ws.framePos;
+                        frameDepth = ws.frameDepth;
+                        frameNext = ws.frameNext;
+                        frameKey = ws.frameKey;
+                        frameRead = ws.frameRead;
+                    }
+                    frameRule[top] = r;
+                    framePos[top] = pos;
+                    frameDepth[top] = 1;
+                    frameNext[top] = 0;
+                    frameKey[top] = key;
+                    frameRead[top] = popped;
+                    path.add(key);
+                    entered++;
+                    maxSize = Math.max(maxSize, pd.size());
+                    maxNonInput = Math.max(maxNonInput, pd.numOfNonInput());
+                    if(pd.isExpansionDone() && length == 0 && read == inputArray.length && endStates[state]) {
+                        LinkedList<Integer> used = new LinkedList();
+                        for(int f = 1; f <= top; f++) {
+                            used.add(frameRule[f] + 1);
+                        }
+                        ws.done(tried, entered, maxSize, maxNonInput);
+                        return used;
+                    }
+                    advanced = true;
+                }
+                else {
+                    read -= popped;
+                    length += popped;
+                    pd.pushBack(inputArray, read, popped);
+                    pd.undo(pos, depth, ruleTo[r], ruleFrom[r]);
+                    state = ruleStart[r];
+                    length -= ruleLength[r];
+                }
+            }
+            if(!advanced) {
+                // All rules were tried, return to previous configuration
+                path.remove(frameKey[top]);
+                failed.add(frameKey[top]);
+                int r = frameRule[top];
+                if(r >= 0) {
+                    read -= frameRead[top];
+                    length += frameRead[top];
+                    pd.pushBack(inputArray, read, frameRead[top]);
+                    pd.undo(framePos[top], ruleDepth[r], ruleTo[r], ruleFrom[r]);
+                    state = ruleStart[r];
+                    length -= ruleLength[r];
+                }
+                top--;
+            }
+        }
+        ws.done(tried, entered, maxSize, maxNonInput);
+        return null;
+    }
+
+    /**
+    * Everything the search needs besides the automaton, one search can
+    * use it at a time. Arrays only grow, so reused workspace doesn't
+    * allocate anything for inputs of similar length.
+    */
+    private class Workspace {
+        final CompiledPD pd = new CompiledPD(numOfNonInputSym, n, 64);
+        ConfigurationCache failed = new ConfigurationCache(cacheSize);
+        final LongSet path = new LongSet();
+
+        // Frames of the search, one for every applied rule
+        int[] frameRule = new int[16];
+        int[] framePos = new int[16];
+        int[] frameDepth = new int[16];
+        int[] frameNext = new int[16];
+        long[] frameKey = new long[16];
+        int[] frameRead = new int[16]; // input symbols popped after the rule
+
+        // Statistics of the last search
+        long tried;
+        long entered;
+        int maxSize;
+        int maxNonInput;
+
+        void done(long tried, long entered, int maxSize, int maxNonInput) {
+            this.tried = tried;
+            this.entered = entered;
+            this.maxSize = maxSize;
+            this.maxNonInput = maxNonInput;
+        }
+
+        void grow() {
+            int size = frameRule.length * 2;
+            frameRule = Arrays.copyOf(frameRule, size);
+            framePos = Arrays.copyOf(framePos, size);
+            frameDepth = Arrays.copyOf(frameDepth, size);
+            frameNext = Arrays.copyOf(frameNext, size);
+            frameKey = Arrays.copyOf(frameKey, size);
+            frameRead = Arrays.copyOf(frameRead, size);
+        }
+    }
+
+    /**
+    * Result of the search for one input.
+    */
+    public static class Result {
+        final private String input;
+        final private List<Integer> rules;
+
+        public Result(String input, List<Integer> rules) {
+            this.input = input;
+            this.rules = rules;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        /**
+        * @return Rule numbers that lead to acceptance, null if input
+        *          isn't accepted
+        */
+        public List<Integer> getRules() {
+            return rules;
+        }
+
+        public boolean isAccepted() {
+            return rules != null;
+        }
+
+        @Override
+        public String toString() {
+            return (isAccepted() ? "accepted " + rules : "rejected") + ": " + input;
+        }
+    }
+
+    boolean isAccepting(CompiledPD pd, int state, int length, int[] input) {
+        return pd.isExpansionDone() && length == input.length && endStates[state];
+    }
+
+    /**
+    * Checks if the input symbols above the top-most non-input symbol
+    * match the beginning of the input. Total length of input symbols
+    * on the stack must not exceed length of the input.
+    */
+    boolean matchesPrefix(CompiledPD pd, int[] input) {
+        return matchesPrefix(pd, input, 0);
+    }
+
+    /**
+    * Checks if the input symbols above the top-most non-input symbol
+    * match the input after given number of read symbols.
+    */
+    boolean matchesPrefix(CompiledPD pd, int[] input, int read) {
+        int fixed = pd.fixedTop();
+        for(int k = 0; k < fixed; k++) {
+            if(pd.peek(k) != input[read + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Hash of configuration, state and content of the stack. Different
+    * configurations can have the same hash.
+    * @return Hash, never 0
+    */
+    long configurationKey(CompiledPD pd, int state) {
+        long key = pd.hash() ^ CompiledPD.mix(~(long) state);
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+    * Hash of configuration with popped input symbols, state, content
+    * of the stack and number of read input symbols.
+    * @return Hash, never 0
+    */
+    long configurationKey(CompiledPD pd, int state, int read) {
+        long key = pd.hash() ^ CompiledPD.mix(~((long) read << 32 | state));
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+    * Sets metrics that every search reports to.
+    * @param metrics metrics, null if searches shouldn't be measured
+    */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+    * Sets size of the cache of failed configurations used by the search.
+    * Bigger cache makes the search faster, but more saved hashes also
+    * make false rejection by hash collision more likely. Workspaces
+    * reused by simulateAll() get cache of the new size at their next
+    * search.
+    * @param cacheSize maximal number of saved configurations
+    */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /*
+    *   GETTERS
+    */
+    public SymbolTable getStates() {
+        return states;
+    }
+
+    /**
+    * @return AlphabetTokenizer of this automaton, it splits input
+    *          to characters unless automaton was compiled with tokens
+    */
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public int getNumOfNonInputSym() {
+        return numOfNonInputSym;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    public int getStartSym() {
+        return startSym;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public boolean isEndState(int state) {
+        return endStates[state];
+    }
+
+    public int getRuleStart(int rule) {
+        return ruleStart[rule];
+    }
+
+    public int getRuleEnd(int rule) {
+        return ruleEnd[rule];
+    }
+
+    public int getRuleNonInput(int rule) {
+        return ruleNonInput[rule];
+    }
+
+    public int getRuleLength(int rule) {
+        return ruleLength[rule];
+    }
+
+    public int getRuleDepth(int rule) {
+        return ruleDepth[rule];
+    }
+
+    public int getRuleFrom(int rule) {
+        return ruleFrom[rule];
+    }
+
+    public int[] getRuleTo(int rule) {
+        return ruleTo[rule];
+    }
+
+    public int getNumOfRules() {
+        return ruleDepth.length;
+    }
+}
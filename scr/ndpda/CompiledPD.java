@@ -0,0 +1,268 @@
+package ndpdar;
+
+import java.util.Arrays;
+
+/**
+ * Supporting stack for compiled Deep Pushdown Automaton. Symbols are
+ * interned ids saved in primitive array (top of the stack is at the end
+ * of the array). Second array saves positions of non-input symbols
+ * (bottom-most first), so the non-input symbol in any depth is found
+ * directly. There are at most n non-input symbols, so keeping the
+ * positions up to date is cheap.
+ *
+ * Expansion and pop don't allocate anything (arrays only grow when
+ * they are full). Every expansion can be undone, so one stack can be
+ * used for whole search.
+ *
+ * Stack keeps Zobrist-style hash of its content, xor of hashes of every
+ * symbol and its position. Hash of every part of the stack from the bottom
+ * is saved, so expansion only rehashes the symbols above the expanded one,
+ * same symbols that are moved anyway.
+ *
+ * @author luciedvorakova
+ */
+public class CompiledPD {
+    final private int numOfNonInputSym;
+    private int[] sym;
+    private int size = 0;
+    private int[] nonInputPos;
+    private int nonInputSize = 0;
+    private long[] hashes; // hashes[i] is hash of symbols 0 .. i - 1
+
+    /**
+    * @param numOfNonInputSym symbols with smaller id are non-input symbols
+    * @param n maximal number of non-input symbols
+    * @param capacity expected maximal number of symbols on the stack
+    */
+    public CompiledPD(int numOfNonInputSym, int n, int capacity) {
+        this.numOfNonInputSym = numOfNonInputSym;
+        this.sym = new int[Math.max(capacity, 2)];
+        this.nonInputPos = new int[Math.max(n, 2)];
+        this.hashes = new long[sym.length + 1];
+    }
+
+    /**
+    * Creates independent copy of the stack.
+    * @return Copy of the stack
+    */
+    public CompiledPD copy() {
+        CompiledPD copy = new CompiledPD(numOfNonInputSym, 0, 0);
+        copy.sym = Arrays.copyOf(sym, sym.length);
+        copy.size = size;
+        copy.nonInputPos = Arrays.copyOf(nonInputPos, nonInputPos.length);
+        copy.nonInputSize = nonInputSize;
+        copy.hashes = Arrays.copyOf(hashes, hashes.length);
+        return copy;
+    }
+
+    /**
+    * Clears the stack and pushes bottom and start symbol.
+    * @param startSymbol id of start symbol
+    */
+    public void reset(int startSymbol) {
+        size = 0;
+        nonInputSize = 0;
+        push(CompiledNDPDA.BOTTOM);
+        push(startSymbol);
+    }
+
+    /**
+    * Non-input symbol in certain depth.
+    * @param depth depth of non-input symbol (top-most is 1)
+    * @return Id of the symbol
+    */
+    public int nonInputAt(int depth) {
+        return sym[nonInputPos[nonInputSize - depth]];
+    }
+
+    /**
+    * Replaces non-input symbol in given depth with given symbols
+    * (first symbol will be top-most). The caller is responsible for
+    * checking that the rule can be applied.
+    * @param depth depth of expanded non-input symbol
+    * @param to symbols replacing the expanded one
+    * @return Position of expanded symbol, needed for undo()
+    */
+    public int expand(int depth, int[] to) {
+        int entry = nonInputSize - depth;
+        int pos = nonInputPos[entry];
+        int shift = to.length - 1;
+        int added = 0;
+        for(int s : to) {
+            if(s < numOfNonInputSym) {
+                added++;
+            }
+        }
+
+        ensureCapacity(size + shift, nonInputSize + added - 1);
+        System.arraycopy(sym, pos + 1, sym, pos + to.length, size - pos - 1);
+        size += shift;
+        // Move positions of non-input symbols above the expanded one
+        System.arraycopy(nonInputPos, entry + 1, nonInputPos, entry + added, nonInputSize - entry - 1);
+        for(int i = entry + added; i < nonInputSize + added - 1; i++) {
+            nonInputPos[i] += shift;
+        }
+        nonInputSize += added - 1;
+
+        int i = entry;
+        for(int j = to.length - 1; j >= 0; j--) {
+            int p = pos + to.length - 1 - j;
+            sym[p] = to[j];
+            if(to[j] < numOfNonInputSym) {
+                nonInputPos[i++] = p;
+            }
+        }
+        rehash(pos);
+        return pos;
+    }
+
+    /**
+    * Reverts expansion made by expand().
+    * @param pos position returned by expand()
+    * @param depth depth used for expansion
+    * @param to symbols used for expansion
+    * @param from expanded non-input symbol
+    */
+    public void undo(int pos, int depth, int[] to, int from) {
+        int shift = to.length - 1;
+        int added = 0;
+        for(int s : to) {
+            if(s < numOfNonInputSym) {
+                added++;
+            }
+        }
+        int entry = nonInputSize - added - depth + 1;
+
+        System.arraycopy(sym, pos + to.length, sym, pos + 1, size - pos - to.length);
+        size -= shift;
+        sym[pos] = from;
+
+        System.arraycopy(nonInputPos, entry + added, nonInputPos, entry + 1, nonInputSize - entry - added);
+        nonInputSize -= added - 1;
+        nonInputPos[entry] = pos;
+        for(int i = entry + 1; i < nonInputSize; i++) {
+            nonInputPos[i] -= shift;
+        }
+        rehash(pos);
+    }
+
+    /**
+    * Pop top symbol from the stack.
+    * @return Id of top symbol
+    */
+    public int pop() {
+        int s = sym[--size];
+        if(s < numOfNonInputSym) {
+            nonInputSize--;
+        }
+        return s;
+    }
+
+    /**
+    * Pushes popped input symbols back, symbol input[from] will
+    * be on the top.
+    * @param input symbols that were popped
+    * @param from index of the first popped symbol
+    * @param count number of popped symbols
+    */
+    public void pushBack(int[] input, int from, int count) {
+        ensureCapacity(size + count, nonInputSize);
+        for(int i = from + count - 1; i >= from; i--) {
+            push(input[i]);
+        }
+    }
+
+    /**
+    * Symbol in given position from the top.
+    * @param i position, top is 0
+    * @return Id of symbol
+    */
+    public int peek(int i) {
+        return sym[size - 1 - i];
+    }
+
+    /**
+    * Number of input symbols above the top-most non-input symbol.
+    * They can't be changed by any expansion.
+    * @return Number of fixed input symbols on top
+    */
+    public int fixedTop() {
+        return size - 1 - nonInputPos[nonInputSize - 1];
+    }
+
+    /**
+    * Hash of the content of the stack.
+    * @return Hash
+    */
+    public long hash() {
+        return hashes[size];
+    }
+
+    /**
+    * Hash of symbol at the position in the stack.
+    * @param pos position from the bottom
+    * @param s id of symbol
+    * @return Hash
+    */
+    static long hash(int pos, int s) {
+        return mix(((long) pos << 32) | s);
+    }
+
+    /**
+    * Mixes bits of the value (finalizer of SplitMix64).
+    */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private void rehash(int from) {
+        for(int i = from; i < size; i++) {
+            hashes[i + 1] = hashes[i] ^ hash(i, sym[i]);
+        }
+    }
+
+    public boolean isExpansionDone() {
+        return nonInputSize == 1;
+    }
+
+    public boolean isPDEmpty() {
+        return size == 1;
+    }
+
+    public int numOfNonInput() {
+        return nonInputSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+    * Copy of the stack content, bottom first.
+    * @return Symbol ids
+    */
+    public int[] toArray() {
+        return Arrays.copyOf(sym, size);
+    }
+
+    private void push(int s) {
+        if(s < numOfNonInputSym) {
+            nonInputPos[nonInputSize++] = size;
+        }
+        sym[size] = s;
+        hashes[size + 1] = hashes[size] ^ hash(size, s);
+        size++;
+    }
+
+    private void ensureCapacity(int symbols, int nonInputs) {
+        if(symbols > sym.length) {
+            sym = Arrays.copyOf(sym, Math.max(symbols, sym.length * 2));
+            hashes = Arrays.copyOf(hashes, sym.length + 1);
+        }
+        if(nonInputs > nonInputPos.length) {
+            nonInputPos = Arrays.copyOf(nonInputPos, Math.max(nonInputs, nonInputPos.length * 2));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ndpdar;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache of configurations shared by searches running in more threads
+ * (see ParallelExplorer). Same table as ConfigurationCache: 64-bit hashes
+ * of configurations in fixed number of slots, every hash can be saved
+ * to one of two slots. Slots are written by compare-and-set without
+ * locks and nothing is allocated when configuration is added.
+ *
+ * When both slots are taken, one of them is replaced, so removed
+ * configuration can be explored again. Two threads adding the same
+ * configuration at once can both see it as new. Both only cost more
+ * work, search has to keep its own path to stop on cycles.
+ *
+ * @author luciedvorakova
+ */
+public class ConcurrentConfigurationCache {
+    static final private long EMPTY = 0;
+
+    final private AtomicLongArray keys;
+    final private int mask;
+
+    /**
+    * @param size maximal number of saved configurations, rounded up
+    *          to power of two
+    */
+    public ConcurrentConfigurationCache(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        keys = new AtomicLongArray(capacity);
+        mask = capacity / 2 - 1;
+    }
+
+    /**
+    * Saves the configuration if it isn't saved yet, may remove other one.
+    * @param hash hash of configuration
+    * @return True if configuration wasn't saved
+    */
+    public boolean add(long hash) {
+        long key = hash == EMPTY ? 1 : hash;
+        int slot = (int) (key ^ (key >>> 32)) & mask << 1;
+        long first = keys.get(slot);
+        long second = keys.get(slot + 1);
+        if(first == key || second == key) {
+            return false;
+        }
+        if(first == EMPTY && keys.compareAndSet(slot, EMPTY, key)) {
+            return true;
+        }
+        if(second == EMPTY && keys.compareAndSet(slot + 1, EMPTY, key)) {
+            return true;
+        }
+        // Both slots are taken, highest bit of the hash chooses the victim
+        keys.set(slot + (int) (key >>> 63), key);
+        return true;
+    }
+
+    public int getCapacity() {
+        return keys.length();
+    }
+}
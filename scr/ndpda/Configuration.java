@@ -0,0 +1,185 @@
+package ndpdar;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+import ndpdar.PDSymbol.Type;
+
+/**
+ * Configuration of automaton used while searching for accepting
+ * sequence of rules. Saves current state and content of the pushdown
+ * (top of the pushdown is at index 0). Configuration is never changed,
+ * every expansion creates new one, which keeps reference to its parent
+ * so the used rules can be recovered.
+ *
+ * @author luciedvorakova
+ */
+public class Configuration {
+    final private String state;
+    final private PDSymbol[] pd;
+    final private int numOfNonInput;
+    final private int inputLength; // number of input characters on PD
+
+    final private Configuration parent;
+    final private int ruleNum;
+
+    public Configuration(String state, PDSymbol startSymbol, PDSymbol bottomSymbol) {
+        this.state = state;
+        this.pd = new PDSymbol[]{startSymbol, bottomSymbol};
+        this.numOfNonInput = 2;
+        this.inputLength = 0;
+        this.parent = null;
+        this.ruleNum = 0;
+    }
+
+    private Configuration(String state, PDSymbol[] pd, int numOfNonInput, int inputLength, Configuration parent, int ruleNum) {
+        this.state = state;
+        this.pd = pd;
+        this.numOfNonInput = numOfNonInput;
+        this.inputLength = inputLength;
+        this.parent = parent;
+        this.ruleNum = ruleNum;
+    }
+
+    /**
+    * Finds non-input symbol in certain depth of the pushdown.
+    * @param depth of the non-input symbol (top-most is 1)
+    * @return Index of symbol in pushdown, -1 if there is no such symbol
+    */
+    private int nonInputIndex(int depth) {
+        int found = 0;
+        for(int i = 0; i < pd.length; i++) {
+            if(pd[i].getType() != Type.TERMINAL) {
+                found++;
+                if(found == depth) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+    * Non-input symbol in certain depth of the pushdown.
+    * @param depth of the non-input symbol (top-most is 1)
+    * @return Non-input symbol or null if there is no such symbol
+    */
+    public PDSymbol nonInputAt(int depth) {
+        int i = nonInputIndex(depth);
+        return i < 0 ? null : pd[i];
+    }
+
+    /**
+    * Creates configuration after application of the rule. Rule
+    * has to be applicable (state and non-input symbol are matching).
+    * @param rule that will be applied
+    * @param ruleNum number of the rule
+    * @return New configuration
+    */
+    public Configuration expand(Rule rule, int ruleNum) {
+        int index = nonInputIndex(rule.depth);
+        PDSymbol[] newPd = new PDSymbol[pd.length - 1 + rule.toSymbols.length];
+        System.arraycopy(pd, 0, newPd, 0, index);
+        int i = index;
+        int length = inputLength;
+        for(PDSymbol sym : rule.toSymbols) {
+            newPd[i++] = sym;
+            if(sym.getType() == Type.TERMINAL) {
+                length += sym.getName().length();
+            }
+        }
+        System.arraycopy(pd, index + 1, newPd, i, pd.length - index - 1);
+        return new Configuration(rule.endState, newPd, numOfNonInput + rule.numOfNonInputSym - 1, length, this, ruleNum);
+    }
+
+    /**
+    * Checks if the input symbols above the top-most non-input symbol
+    * (they can't be changed by any expansion) match the beginning of the input.
+    * @param input input without whitespaces
+    * @return True if pushdown can still lead to the input
+    */
+    public Boolean matchesPrefix(char[] input) {
+        if(inputLength > input.length) {
+            return false;
+        }
+        int i = 0;
+        for(PDSymbol sym : pd) {
+            if(sym.getType() != Type.TERMINAL) {
+                break;
+            }
+            for(char c : sym.getName().toCharArray()) {
+                if(input[i] != c) {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Only the bottom symbol is left from non-input symbols and
+    * input symbols on the pushdown have the length of the input.
+    * Together with matchesPrefix() it means the input would be
+    * read in popping phase.
+    * @param input input without whitespaces
+    * @return True if popping phase would read the input
+    */
+    public Boolean isExpansionDone(char[] input) {
+        return numOfNonInput == 1 && inputLength == input.length;
+    }
+
+    /**
+    * Rules used to get from the start configuration to this one.
+    * @return List of rule numbers
+    */
+    public List<Integer> getRules() {
+        LinkedList<Integer> rules = new LinkedList();
+        for(Configuration conf = this; conf.parent != null; conf = conf.parent) {
+            rules.addFirst(conf.ruleNum);
+        }
+        return rules;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int size() {
+        return pd.length;
+    }
+
+    public int numOfNonInput() {
+        return numOfNonInput;
+    }
+
+    @Override
+    public int hashCode() {
+        return state.hashCode() * 31 + Arrays.hashCode(pd);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Configuration other = (Configuration) obj;
+        if (!state.equals(other.state))
+            return false;
+        return Arrays.equals(pd, other.pd);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(state).append(":");
+        for(PDSymbol sym : pd) {
+            sb.append(" ").append(sym.getName());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package ndpdar;
+
+import java.util.Arrays;
+
+/**
+ * Cache of configurations that are already known not to lead to
+ * acceptance, so the search doesn't explore them again. Configurations
+ * are saved as 64-bit hashes (see CompiledPD.hash()) in the table of
+ * fixed size. Every hash can be saved to one of two slots, when both
+ * are taken, the one saved earlier is replaced. Removed configuration
+ * can be explored again, so the size of cache only affects speed.
+ *
+ * Configurations aren't compared, only their hashes. When configuration
+ * that can lead to acceptance has the same hash as saved one, it is
+ * taken as failed and the input can be wrongly rejected. For k saved
+ * configurations this happens with probability about k * k / 2^65,
+ * accepted input is always right. NDPDA.search() compares whole
+ * configurations.
+ * 
+ * @author luciedvorakova
+ */
+public class ConfigurationCache {
+    static final public int DEFAULT_SIZE = 1 << 16;
+    static final private long EMPTY = 0;
+    
+    final private int size;
+    final private long[] keys;
+    final private boolean[] older; // second slot of the pair was saved earlier
+    final private int mask;
+    
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    /**
+    * @param size maximal number of saved configurations, rounded up 
+    *          to power of two
+    */
+    public ConfigurationCache(int size) {
+        this.size = size;
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        keys = new long[capacity];
+        older = new boolean[capacity / 2];
+        mask = capacity / 2 - 1;
+    }
+    
+    /**
+    * Is the configuration saved in the cache. 
+    * @param hash hash of configuration
+    * @return True if configuration is saved
+    */
+    public boolean contains(long hash) {
+        long key = key(hash);
+        int slot = slot(key);
+        if(keys[slot] == key || keys[slot + 1] == key) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+    
+    /**
+    * Saves the configuration, may remove other one.
+    * @param hash hash of configuration
+    */
+    public void add(long hash) {
+        long key = key(hash);
+        int slot = slot(key);
+        if(keys[slot] == key || keys[slot + 1] == key) {
+            return;
+        }
+        int pair = slot / 2;
+        int victim = older[pair] ? slot + 1 : slot;
+        if(keys[victim] != EMPTY) {
+            evictions++;
+        }
+        keys[victim] = key;
+        older[pair] = victim == slot;
+    }
+    
+    /**
+    * Removes all configurations and resets the statistics, so the cache
+    * can be used for next search.
+    */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(older, false);
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+    
+    private long key(long hash) {
+        return hash == EMPTY ? 1 : hash;
+    }
+    
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask << 1;
+    }
+    
+    /*
+    *   GETTERS
+    */
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+    * @return Size given to the constructor
+    */
+    public int getSize() {
+        return size;
+    }
+    
+    public int getCapacity() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,79 @@
+package ndpdar;
+
+import java.util.concurrent.atomic.LongAdder;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Listener that only counts events of simulation and conversion.
+ * Same listener can be used by simulations running in more threads,
+ * counters are LongAdders.
+ * 
+ * @author luciedvorakova
+ */
+public class CountingTracer implements SimulationListener {
+    final private LongAdder simulations = new LongAdder();
+    final private LongAdder accepted = new LongAdder();
+    final private LongAdder rulesApplied = new LongAdder();
+    final private LongAdder rulesRejected = new LongAdder();
+    final private LongAdder popMismatches = new LongAdder();
+    final private LongAdder rulesConverted = new LongAdder();
+    
+    @Override
+    public void started(String input, DeepPD pd) {
+        simulations.increment();
+    }
+    
+    @Override
+    public void ruleApplied(Rule rule, DeepPD pd) {
+        rulesApplied.increment();
+    }
+    
+    @Override
+    public void ruleRejected(int ruleNum, String reason) {
+        rulesRejected.increment();
+    }
+    
+    @Override
+    public void popMismatch(char input, char sym) {
+        popMismatches.increment();
+    }
+    
+    @Override
+    public void finished(Boolean accepted) {
+        if(accepted) {
+            this.accepted.increment();
+        }
+    }
+    
+    @Override
+    public void ruleConverted(String reduced) {
+        rulesConverted.increment();
+    }
+    
+    /*
+    *   GETTERS
+    */
+    public long getSimulations() {
+        return simulations.sum();
+    }
+    
+    public long getAccepted() {
+        return accepted.sum();
+    }
+    
+    public long getRulesApplied() {
+        return rulesApplied.sum();
+    }
+    
+    public long getRulesRejected() {
+        return rulesRejected.sum();
+    }
+    
+    public long getPopMismatches() {
+        return popMismatches.sum();
+    }
+    
+    public long getRulesConverted() {
+        return rulesConverted.sum();
+    }
+}
@@ -2,7 +2,6 @@ package ndpdar;
 
 import deepstack.DeepStack;
 import deepstack.DeepStack.Node;
-import static java.lang.System.out;
 import ndpdar.PDSymbol.Type;
 import ndpdar.NDPDA.Rule;
 
@@ -21,7 +20,7 @@ public class DeepPD {
     final private DeepStack<PDSymbol> dpdaSym = new DeepStack();
     
     public DeepPD(PDSymbol startSymbol){
-        this.BOTTOM_SYMBOL = new PDSymbol(Type.BOTTOM, null);
+        this.BOTTOM_SYMBOL = PDSymbol.BOTTOM;
         push(BOTTOM_SYMBOL);
         push(startSymbol);
     }
@@ -40,7 +39,6 @@ public class DeepPD {
         
         //Check if rule can be applied
         if(!expandNode.getData().equals(rule.fromSym)) {
-            out.println(rule + " cound't be applied!");
             return false;
         }
         
@@ -76,6 +74,14 @@ public class DeepPD {
         return sym;
     }
     
+    /**
+    * Top symbol of entire stack, stack is not changed.
+    * @return Top symbol of the stack
+    */
+    public PDSymbol peek() {
+        return dpdaSym.peek();
+    }
+    
     /**
     * Check if more expansions can be done. 
     * @return True if stack doesn't contain any non-input symbols
@@ -101,6 +107,14 @@ public class DeepPD {
         return nonInputSym.size();
     }
     
+    /**
+    * Number of all symbols on stack, including bottom symbol.
+    * @return Number of symbols on stack
+    */
+    public int size() {
+        return dpdaSym.size();
+    }
+    
     /**
     * Initial push for bottom and start symbol.
     */
@@ -0,0 +1,127 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+import ndpdar.PDSymbol.Type;
+
+/**
+ * State of reduced automaton (NDPDAr). Encodes state q of the original
+ * automaton together with all the non-input symbols on its pushdown
+ * (except bottom symbol), written as (q;uAz). Reduced automaton keeps
+ * only special symbol $ for every non-input symbol on the pushdown.
+ *
+ * The name is created so it can be decoded again, so states
+ * of the original automaton and its non-input symbols must not
+ * contain spaces, non-input symbols must not contain ';'.
+ *
+ * @author luciedvorakova
+ */
+public class EncodedState {
+    static final String SPECIAL_SYMBOL = "$";
+
+    final private String state;
+    final private List<String> nonInput;
+
+    public EncodedState(String state, List<String> nonInput) {
+        this.state = state;
+        this.nonInput = nonInput;
+    }
+
+    /**
+    * Creates encoded state from its name.
+    * @param name name created by getName()
+    * @return Encoded state
+    */
+    public static EncodedState decode(String name) {
+        String inner = name.substring(1, name.length() - 1);
+        int split = inner.lastIndexOf(';');
+        String symbols = inner.substring(split + 1);
+        List<String> nonInput = symbols.isEmpty()
+                ? new ArrayList()
+                : new ArrayList<>(Arrays.asList(symbols.split(" ")));
+        return new EncodedState(inner.substring(0, split), nonInput);
+    }
+
+    /**
+    * Encoded state after applying rule of the original automaton.
+    * Non-input symbol at depth of the rule is replaced by non-input
+    * symbols of the rule, f(v) in the conversion.
+    * @param rule rule of original automaton
+    * @return New encoded state
+    */
+    public EncodedState apply(Rule rule) {
+        List<String> newNonInput = new ArrayList();
+        newNonInput.addAll(nonInput.subList(0, rule.depth - 1));
+        for(PDSymbol sym : rule.toSymbols) {
+            if(sym.getType() == Type.NONTERMINAL) {
+                newNonInput.add(sym.getName());
+            }
+        }
+        if(rule.depth <= nonInput.size()) {
+            newNonInput.addAll(nonInput.subList(rule.depth, nonInput.size()));
+        }
+        return new EncodedState(rule.endState, newNonInput);
+    }
+
+    /**
+    * Symbols pushed by the reduced rule, g(v) in the conversion. Every
+    * non-input symbol is replaced by special symbol $.
+    * @param rule rule of original automaton
+    * @return Names of pushed symbols
+    */
+    public static ArrayList<String> reducedSymbols(Rule rule) {
+        ArrayList<String> al = new ArrayList();
+        for(PDSymbol sym : rule.toSymbols){
+            if(sym.getType() == Type.NONTERMINAL) {
+                al.add(SPECIAL_SYMBOL);
+            }
+            else {
+                al.add(sym.getName());
+            }
+        }
+        return al;
+    }
+
+    /**
+    * Non-input symbol of the original automaton at given depth.
+    * Symbol right after the encoded ones is the bottom symbol.
+    * @param depth depth of the non-input symbol
+    * @return Name of the symbol or null if there is no such symbol
+    */
+    public String nonInputAt(int depth) {
+        if(depth >= 1 && depth <= nonInput.size()) {
+            return nonInput.get(depth - 1);
+        }
+        if(depth == nonInput.size() + 1) {
+            return PDSymbol.BOTTOM_NAME;
+        }
+        return null;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public List<String> getNonInput() {
+        return nonInput;
+    }
+
+    public String getName() {
+        return "(" + state + ";" + String.join(" ", nonInput) + ")";
+    }
+
+    /**
+    * Name used by NDPDAr conversion, state followed by non-input symbols.
+    * @return Name of the state in reduced automaton
+    */
+    public String getReducedName() {
+        return state + String.join("", nonInput);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,257 @@
+package ndpdar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+import ndpdar.PDSymbol.Type;
+import ndpdar.SimulationListener.Phase;
+
+/**
+ * One run of the automaton following given list of rules. Execution
+ * keeps everything that changes during the run (pushdown and current
+ * state), automaton itself is only read, so one automaton can be used
+ * by many executions at the same time (setting of the automaton has
+ * to be done before).
+ *
+ * @author luciedvorakova
+ */
+public class Execution {
+    final private NDPDA automaton;
+    final private SimulationListener listener;
+    final private DeepPD pd;
+    private String state;
+    private boolean incremental;
+
+    public Execution(NDPDA automaton) {
+        this(automaton, automaton.getListener());
+    }
+
+    /**
+    * @param automaton automaton to run, setting has to be done
+    * @param listener listener of events of this run
+    */
+    public Execution(NDPDA automaton, SimulationListener listener) {
+        this.automaton = automaton;
+        this.listener = listener;
+        this.pd = new DeepPD(automaton.getStartPDSym());
+        this.state = automaton.getStartState();
+        this.incremental = automaton.isIncremental();
+    }
+
+    /**
+    * Top-down parsing of the input following the list of rules.
+    * In incremental mode input symbols are popped as soon as they
+    * are on the top of the pushdown, same as for input read from
+    * the stream, so wrong rule is rejected right after it pushes
+    * symbol that doesn't match the input.
+    * @param input String of input character
+    * @param rulesNum list giving order of used rules
+    * @return Returns true if string is accepted by automaton,
+    *          else returns false.
+    */
+    public Boolean run(String input, List<Integer> rulesNum) {
+        if(incremental) {
+            try {
+                return run(new StringReader(input), rulesNum, input);
+            }
+            catch(IOException e) {
+                // StringReader doesn't throw
+                throw new UncheckedIOException(e);
+            }
+        }
+        listener.started(input, pd);
+
+        for(int ruleNum : rulesNum) {
+            if(!apply(ruleNum)) {
+                return finish(false);
+            }
+        }
+
+        if(pd.isExpansionDone()){
+            listener.phaseDone(Phase.EXPANSION);
+        }
+        else {
+            listener.rejected("Non-input symbols are left on PD after expansion.");
+            return finish(false);
+        }
+
+        int i = 0;
+        char[] inputArray = input.toCharArray();
+        while(!pd.isPDEmpty()){
+            String val = pd.pop().getName();
+            for(char sym : val.toCharArray()) {
+                while (Character.isWhitespace(inputArray[i])) {
+                    i++;
+                }
+                if(sym != inputArray[i]){
+                    listener.popMismatch(inputArray[i], sym);
+                    return finish(false);
+                }
+                listener.symbolPopped(sym);
+                i++;
+            }
+        }
+        listener.phaseDone(Phase.POPPING);
+
+        return finish(isAccepting());
+    }
+
+    /**
+    * Top-down parsing of input read from the stream following the list
+    * of rules, see NDPDA.simulate(Reader, List).
+    * @param input stream of input characters
+    * @param rulesNum list giving order of used rules
+    * @return Returns true if input is accepted by automaton,
+    *          else returns false.
+    * @throws IOException if the input can't be read
+    */
+    public Boolean run(Reader input, List<Integer> rulesNum) throws IOException {
+        Reader reader = input instanceof BufferedReader ? input : new BufferedReader(input);
+        return run(reader, rulesNum, "(stream)");
+    }
+
+    private Boolean run(Reader reader, List<Integer> rulesNum, String name) throws IOException {
+        listener.started(name, pd);
+
+        for(int ruleNum : rulesNum) {
+            if(!apply(ruleNum) || !popInput(reader)) {
+                return finish(false);
+            }
+        }
+
+        if(pd.isExpansionDone()){
+            listener.phaseDone(Phase.EXPANSION);
+        }
+        else {
+            listener.rejected("Non-input symbols are left on PD after expansion.");
+            return finish(false);
+        }
+        if(!popInput(reader)) {
+            return finish(false);
+        }
+        if(nextSymbol(reader) != -1) {
+            listener.rejected("Input is longer than content of PD.");
+            return finish(false);
+        }
+        listener.phaseDone(Phase.POPPING);
+
+        return finish(isAccepting());
+    }
+
+    /**
+    * Applies rule by its number, if it is possible.
+    * @param ruleNum number of the rule
+    * @return False if rule couldn't be applied
+    */
+    public Boolean apply(int ruleNum) {
+        List<Rule> rules = automaton.getExpansionRules();
+        Rule rule;
+        if(rules.size() > ruleNum - 1  && ruleNum > 0) {
+            rule = rules.get(ruleNum - 1);
+        }
+        else {
+           listener.ruleRejected(ruleNum, "Rule number " + ruleNum + " doesn't exist");
+           return false;
+        }
+
+        if(!rule.startState.equals(state)) {
+            listener.ruleRejected(ruleNum, "Rule start state " + rule.startState + " doesn't match with current state " + state + ".");
+            return false;
+        }
+
+        // Applying the rule would exceed the nomber of non-input
+        // symbols on the pushdown.
+        if(pd.numOfNonInput() + rule.numOfNonInputSym - 1 > automaton.getN()){
+            listener.ruleRejected(ruleNum, "Rule cannot be applied, number od non-input symbols on PD exceeds n (n = " + automaton.getN() + " ).");
+            return false;
+        }
+        if(!pd.expand(rule)) {
+            listener.ruleRejected(ruleNum, "Application of rule was unsuccessful: " + rule);
+            return false;
+        }
+        listener.ruleApplied(rule, pd);
+        state = rule.endState;
+        return true;
+    }
+
+    /**
+    * Pops input symbols from the top of the pushdown while they
+    * match the input.
+    * @param reader input
+    * @return False if symbol doesn't match the input
+    * @throws IOException if the input can't be read
+    */
+    private Boolean popInput(Reader reader) throws IOException {
+        while(!pd.isPDEmpty() && pd.peek().getType() == Type.TERMINAL) {
+            String val = pd.pop().getName();
+            for(char sym : val.toCharArray()) {
+                int c = nextSymbol(reader);
+                if(c == -1) {
+                    listener.rejected("Input ended before symbol " + sym + " on stack.");
+                    return false;
+                }
+                if(sym != c){
+                    listener.popMismatch((char) c, sym);
+                    return false;
+                }
+                listener.symbolPopped(sym);
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Reads next input character that isn't whitespace.
+    * @param reader input
+    * @return Character or -1 at the end of input
+    * @throws IOException if the input can't be read
+    */
+    private static int nextSymbol(Reader reader) throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while(c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    private Boolean isAccepting() {
+        if(!automaton.getEndStates().contains(state)){
+            listener.rejected(state + " is not an end state.");
+            return false;
+        }
+        return pd.isPDEmpty();
+    }
+
+    private Boolean finish(Boolean accepted) {
+        listener.finished(accepted);
+        return accepted;
+    }
+
+    /*
+    *   GETTERS
+    */
+    public String getState() {
+        return state;
+    }
+
+    public DeepPD getPD() {
+        return pd;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+    * Sets incremental mode of run(String, List), by default
+    * it is taken from the automaton.
+    * @param incremental true if input symbols should be popped during expansions
+    */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+}
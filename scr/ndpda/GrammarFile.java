@@ -0,0 +1,176 @@
+package ndpdar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Text definition of NDPDA automaton. Every line contains one item,
+ * items are separated by whitespaces, text after '%' is comment:
+ * 
+ *   n 5                       maximal number of non-input symbols
+ *   start s S                 start state and start symbol
+ *   end f g                   end states (line can be repeated)
+ *   2 p P -> p func { P }     rule: depth, start state, expanded symbol,
+ *                             end state and pushed symbols
+ * 
+ * Lines n and start have to be before the first rule. The file is read
+ * line by line and rules are added to the automaton right away, names
+ * that occur repeatedly are kept only once.
+ *
+ * @author luciedvorakova
+ */
+public class GrammarFile {
+    static final private char COMMENT = '%';
+    static final private String ARROW = "->";
+
+    private GrammarFile() {
+    }
+
+    /**
+    * Reads automaton from the file (UTF-8).
+    * @param path file with definition of automaton
+    * @return Automaton, setting isn't done
+    * @throws IOException if file can't be read or has wrong format
+    */
+    public static NDPDA read(Path path) throws IOException {
+        try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+    * Reads automaton from the stream.
+    * @param input definition of automaton
+    * @return Automaton, setting isn't done
+    * @throws IOException if input can't be read or has wrong format
+    */
+    public static NDPDA read(Reader input) throws IOException {
+        BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        HashMap<String, String> names = new HashMap();
+        HashSet<String> endStates = new HashSet();
+        List<String> tokens = new ArrayList();
+        NDPDA automaton = null;
+        int n = -1;
+        String startState = null;
+        String startSym = null;
+
+        String line;
+        int lineNum = 0;
+        while((line = reader.readLine()) != null) {
+            lineNum++;
+            split(line, tokens, names);
+            if(tokens.isEmpty()) {
+                continue;
+            }
+            String first = tokens.get(0);
+            if(first.equals("n")) {
+                expect(tokens.size() == 2 && automaton == null, lineNum, "n <number> before rules");
+                n = number(tokens.get(1), lineNum);
+            }
+            else if(first.equals("start")) {
+                expect(tokens.size() == 3 && automaton == null, lineNum, "start <state> <symbol> before rules");
+                startState = tokens.get(1);
+                startSym = tokens.get(2);
+            }
+            else if(first.equals("end")) {
+                for(int i = 1; i < tokens.size(); i++) {
+                    endStates.add(tokens.get(i));
+                }
+            }
+            else {
+                expect(tokens.size() >= 5 && tokens.get(3).equals(ARROW), lineNum,
+                        "<depth> <state> <symbol> -> <state> <symbols>");
+                if(automaton == null) {
+                    expect(n > 0 && startState != null, lineNum, "n and start before rules");
+                    automaton = new NDPDA(n, startState, startSym, endStates);
+                }
+                String[] toSymbols = new String[tokens.size() - 5];
+                for(int i = 5; i < tokens.size(); i++) {
+                    toSymbols[i - 5] = tokens.get(i);
+                }
+                automaton.addRule(number(first, lineNum), tokens.get(1), tokens.get(2), tokens.get(4), toSymbols);
+            }
+        }
+        if(automaton == null) {
+            expect(n > 0 && startState != null, lineNum, "n and start");
+            automaton = new NDPDA(n, startState, startSym, endStates);
+        }
+        return automaton;
+    }
+
+    /**
+    * Writes definition of the automaton, it can be read again by read().
+    * @param automaton automaton to write
+    * @param out output
+    * @throws IOException if output can't be written
+    */
+    public static void write(NDPDA automaton, Writer out) throws IOException {
+        out.write("n " + automaton.getN() + "\n");
+        out.write("start " + automaton.getStartState() + " " + automaton.getStartPDSym().getName() + "\n");
+        if(!automaton.getEndStates().isEmpty()) {
+            out.write("end " + String.join(" ", automaton.getEndStates()) + "\n");
+        }
+        StringBuilder sb = new StringBuilder();
+        for(Rule rule : automaton.getExpansionRules()) {
+            sb.setLength(0);
+            sb.append(rule.depth).append(' ').append(rule.startState).append(' ')
+                    .append(rule.fromSym.getName()).append(' ').append(ARROW).append(' ').append(rule.endState);
+            for(PDSymbol sym : rule.toSymbols) {
+                sb.append(' ').append(sym.getName());
+            }
+            out.write(sb.append('\n').toString());
+        }
+        out.flush();
+    }
+
+    /**
+    * Splits the line to tokens separated by whitespaces, up to comment.
+    */
+    private static void split(String line, List<String> tokens, HashMap<String, String> names) {
+        tokens.clear();
+        int i = 0;
+        int length = line.length();
+        while(i < length) {
+            char c = line.charAt(i);
+            if(c == COMMENT) {
+                return;
+            }
+            if(Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while(i < length && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != COMMENT) {
+                i++;
+            }
+            String token = line.substring(start, i);
+            String known = names.putIfAbsent(token, token);
+            tokens.add(known == null ? token : known);
+        }
+    }
+
+    private static int number(String token, int lineNum) throws IOException {
+        try {
+            return Integer.parseInt(token);
+        }
+        catch(NumberFormatException e) {
+            throw new IOException("Line " + lineNum + ": " + token + " is not a number.");
+        }
+    }
+
+    private static void expect(boolean condition, int lineNum, String expected) throws IOException {
+        if(!condition) {
+            throw new IOException("Line " + lineNum + ": expected " + expected + ".");
+        }
+    }
+}
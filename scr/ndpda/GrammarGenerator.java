@@ -0,0 +1,259 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of random NDPDA automata and their inputs for scaling tests.
+ * Automaton has states q0 .. q(k-1) (q0 is the end state), non-input
+ * symbols A0 .. A(m-1) and input symbols a, b, c, ... Start rule
+ * 1 s S -> q0 ... pushes random non-input symbols. Every state and
+ * non-input symbol get fanOut random rules with depth chosen by given
+ * weights. There is always rule 1 qi Aj -> qk x Al, so every derivation
+ * can be continued, and rule 1 qi Aj -> q0 x that only pushes input
+ * symbol, so every derivation can be finished.
+ *
+ * Accepted input is created by random derivation, rules of the
+ * derivation are returned with it. Rejected input is accepted input
+ * with one changed symbol, checked by the search.
+ *
+ * @author luciedvorakova
+ */
+public class GrammarGenerator {
+    static final public char UNKNOWN_SYMBOL = '?';
+
+    final private Random random;
+    private int n = 3;
+    private int numOfStates = 2;
+    private int numOfSym = 3;
+    private int numOfTerminals = 3;
+    private int fanOut = 2;
+    private double[] depthWeights = {1};
+
+    public GrammarGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+    * Generates new automaton with current parameters.
+    * @return Automaton, setting is done
+    */
+    public NDPDA generate() {
+        HashSet<String> endStates = new HashSet();
+        endStates.add(state(0));
+        NDPDA automaton = new NDPDA(n, "s", "S", endStates);
+
+        String[] start = new String[1 + random.nextInt(n - 1)];
+        for(int i = 0; i < start.length; i++) {
+            start[i] = nonInput(random.nextInt(numOfSym));
+        }
+        automaton.addRule(1, "s", "S", state(0), start);
+
+        for(int q = 0; q < numOfStates; q++) {
+            for(int a = 0; a < numOfSym; a++) {
+                for(int i = 0; i < fanOut; i++) {
+                    automaton.addRule(randomDepth(), state(q), nonInput(a),
+                            state(random.nextInt(numOfStates)), randomSymbols());
+                }
+                automaton.addRule(1, state(q), nonInput(a), state(random.nextInt(numOfStates)),
+                        terminal(random.nextInt(numOfTerminals)), nonInput(random.nextInt(numOfSym)));
+                automaton.addRule(1, state(q), nonInput(a), state(0), terminal(random.nextInt(numOfTerminals)));
+            }
+        }
+        automaton.automatSettingDone();
+        return automaton;
+    }
+
+    /**
+    * Creates accepted input by random derivation. After given number
+    * of steps only rules finishing the derivation are used.
+    * @param automaton automaton created by generate()
+    * @param steps number of random rules
+    * @return Accepted input and rules of its derivation
+    */
+    public Sample accepted(NDPDA automaton, int steps) {
+        CompiledNDPDA compiled = automaton.compile();
+        CompiledPD pd = new CompiledPD(compiled.getNumOfNonInputSym(), compiled.getN(), 64);
+        pd.reset(compiled.getStartSym());
+        LinkedList<Integer> rules = new LinkedList();
+        int state = compiled.getStartState();
+
+        List<Integer> candidates = new ArrayList();
+        for(int step = 0; pd.numOfNonInput() > 1; step++) {
+            // Random rules keep some non-input symbol on PD, the last
+            // one can be removed only by rule to end state
+            candidates(compiled, pd, state, step < steps, candidates);
+            if(candidates.isEmpty()) {
+                candidates(compiled, pd, state, false, candidates);
+            }
+            int r = candidates.get(random.nextInt(candidates.size()));
+            pd.expand(compiled.getRuleDepth(r), compiled.getRuleTo(r));
+            state = compiled.getRuleEnd(r);
+            rules.add(r + 1);
+        }
+
+        int[] stack = pd.toArray();
+        StringBuilder input = new StringBuilder();
+        for(int i = stack.length - 1; i > 0; i--) {
+            input.append(compiled.getSymbols().name(stack[i]));
+        }
+        return new Sample(input.toString(), rules);
+    }
+
+    /**
+    * Applicable rules that can continue the derivation (all depths)
+    * or finish it (depth 1, end state, no non-input symbols).
+    */
+    private static void candidates(CompiledNDPDA compiled, CompiledPD pd, int state,
+            boolean continuing, List<Integer> candidates) {
+        candidates.clear();
+        int maxDepth = continuing ? pd.numOfNonInput() - 1 : 1;
+        for(int depth = 1; depth <= maxDepth; depth++) {
+            for(int r : compiled.applicableRules(state, depth, pd.nonInputAt(depth))) {
+                int after = pd.numOfNonInput() + compiled.getRuleNonInput(r) - 1;
+                boolean finishing = compiled.getRuleNonInput(r) == 0 && compiled.isEndState(compiled.getRuleEnd(r));
+                if(continuing ? after > 1 && after <= compiled.getN() : finishing) {
+                    candidates.add(r);
+                }
+            }
+        }
+    }
+
+    /**
+    * Creates rejected input by changing one symbol of accepted input.
+    * If every tried change is accepted, symbol UNKNOWN_SYMBOL that
+    * isn't in the input alphabet is used.
+    * @param automaton automaton created by generate()
+    * @param accepted accepted input
+    * @return Rejected input
+    */
+    public Sample rejected(NDPDA automaton, Sample accepted) {
+        CompiledNDPDA compiled = automaton.compile();
+        char[] input = accepted.getInput().toCharArray();
+        for(int attempt = 0; attempt < 10 && input.length > 0; attempt++) {
+            int pos = random.nextInt(input.length);
+            char original = input[pos];
+            input[pos] = terminal((original - 'a' + 1 + random.nextInt(Math.max(numOfTerminals - 1, 1))) % numOfTerminals).charAt(0);
+            String candidate = new String(input);
+            if(input[pos] != original && compiled.simulate(candidate) == null) {
+                return new Sample(candidate, null);
+            }
+            input[pos] = original;
+        }
+        return new Sample(accepted.getInput() + UNKNOWN_SYMBOL, null);
+    }
+
+    private int randomDepth() {
+        double total = 0;
+        for(double w : depthWeights) {
+            total += w;
+        }
+        double x = random.nextDouble() * total;
+        for(int i = 0; i < depthWeights.length; i++) {
+            x -= depthWeights[i];
+            if(x < 0) {
+                return i + 1;
+            }
+        }
+        return depthWeights.length;
+    }
+
+    /**
+    * One or two input symbols, each followed by non-input symbol
+    * with probability 1/2.
+    */
+    private String[] randomSymbols() {
+        List<String> symbols = new ArrayList();
+        int length = 1 + random.nextInt(2);
+        for(int i = 0; i < length; i++) {
+            symbols.add(terminal(random.nextInt(numOfTerminals)));
+            if(random.nextBoolean()) {
+                symbols.add(nonInput(random.nextInt(numOfSym)));
+            }
+        }
+        return symbols.toArray(new String[symbols.size()]);
+    }
+
+    private static String state(int i) {
+        return "q" + i;
+    }
+
+    private static String nonInput(int i) {
+        return "A" + i;
+    }
+
+    private static String terminal(int i) {
+        return Character.toString((char) ('a' + i));
+    }
+
+    /**
+    * Input together with rules of its derivation.
+    */
+    public static class Sample {
+        final private String input;
+        final private List<Integer> rules;
+
+        public Sample(String input, List<Integer> rules) {
+            this.input = input;
+            this.rules = rules;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        /**
+        * @return Rules of derivation, null for rejected input
+        */
+        public List<Integer> getRules() {
+            return rules;
+        }
+
+        public boolean isAccepted() {
+            return rules != null;
+        }
+    }
+
+    /*
+    *   SETTERS
+    */
+    /**
+    * @param n maximal number of non-input symbols on PD, at least 2
+    */
+    public void setN(int n) {
+        this.n = n;
+    }
+
+    public void setNumOfStates(int numOfStates) {
+        this.numOfStates = numOfStates;
+    }
+
+    public void setNumOfSym(int numOfSym) {
+        this.numOfSym = numOfSym;
+    }
+
+    /**
+    * @param numOfTerminals number of input symbols, 1 .. 26
+    */
+    public void setNumOfTerminals(int numOfTerminals) {
+        this.numOfTerminals = numOfTerminals;
+    }
+
+    /**
+    * @param fanOut number of random rules for every state and non-input symbol
+    */
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+    * @param depthWeights depthWeights[i] is relative number of random
+    *          rules with depth i + 1
+    */
+    public void setDepthWeights(double... depthWeights) {
+        this.depthWeights = depthWeights;
+    }
+}
@@ -0,0 +1,74 @@
+package ndpdar;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (e.g. latencies in nanoseconds) that
+ * can be updated from more threads. Values are counted in buckets by
+ * powers of two, bucket i holds values 2^(i-1) .. 2^i - 1, so percentiles
+ * are known with precision of factor two.
+ *
+ * @author luciedvorakova
+ */
+public class Histogram {
+    static final private int BUCKETS = 64;
+
+    final private AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    final private LongAdder count = new LongAdder();
+    final private LongAdder sum = new LongAdder();
+    final private LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+    * Adds value to the histogram, negative values are counted as 0.
+    * @param value recorded value
+    */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(Math.min(BUCKETS - Long.numberOfLeadingZeros(value), BUCKETS - 1));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+    * Value that is bigger than given part of recorded values.
+    * @param p part of values, 0 .. 1 (e.g. 0.99)
+    * @return Upper bound of the bucket with the percentile, 0 if nothing
+    *          was recorded
+    */
+    public long percentile(double p) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= rank && counts[i] > 0) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+            }
+        }
+        return 0;
+    }
+
+    /*
+    *   GETTERS
+    */
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+}
@@ -0,0 +1,155 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import ndpdar.PDSymbol.Type;
+
+/**
+ * n-expandable Deep Pushdown Automaton with reduced pushdown alphabet,
+ * that doesn't convert all the rules of the original automaton in advance.
+ * Rule of the reduced automaton is derived only when the search asks
+ * for the rules of concrete encoded state (q;uAz) and depth. Derived
+ * rules are kept in cache of limited size (least recently used rules are
+ * removed first), so used memory doesn't depend on the number
+ * of non-input symbols or n. Cache is shared by searches running
+ * in more threads, access to it is synchronized.
+ *
+ * Derived rules get the same numbers as they have in NDPDAr created
+ * by NDPDAr(NDPDA), so the rule sequence found by simulate() can be
+ * replayed on it.
+ *
+ * @author luciedvorakova
+ */
+public class LazyNDPDAr extends NDPDA {
+    static final public int DEFAULT_CACHE_SIZE = 10000;
+    // The only non-input symbol of reduced automaton besides bottom symbol
+    static final private HashSet<String> REDUCED_NON_INPUT = new HashSet(Collections.singleton(EncodedState.SPECIAL_SYMBOL));
+
+    final private NDPDA regAuto;
+    final private Map<String, List<Rule>> cache;
+    final private ReducedRuleNumbering numbering;
+
+    public LazyNDPDAr(NDPDA regAuto) {
+        this(regAuto, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+    * @param regAuto NDPDA automat that will be converted, its setting is done
+    *          if it isn't yet
+    * @param cacheSize maximal number of states and depths with cached rules
+    */
+    public LazyNDPDAr(NDPDA regAuto, int cacheSize) {
+        super(regAuto.getN(),
+                new EncodedState(regAuto.getStartState(), startNonInput(regAuto)).getName(),
+                EncodedState.SPECIAL_SYMBOL, regAuto.getEndStates());
+        this.regAuto = regAuto;
+        regAuto.ensureSettingDone();
+        this.cache = new LinkedHashMap<String, List<Rule>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Rule>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.numbering = new ReducedRuleNumbering(regAuto);
+    }
+
+    private static List<String> startNonInput(NDPDA regAuto) {
+        List<String> nonInput = new ArrayList();
+        nonInput.add(regAuto.getStartPDSym().getName());
+        return nonInput;
+    }
+
+    /**
+    * Searches for accepting rule sequence, rules are derived
+    * during the search.
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    @Override
+    public List<Integer> simulate(String input) {
+        return search(input);
+    }
+
+    /**
+    * Rules aren't known in advance, so the automaton can't be compiled,
+    * same as simulate(String).
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    @Override
+    public List<Integer> simulateHashed(String input) {
+        return search(input);
+    }
+
+    /**
+    * Derives rules of reduced automaton for encoded state and depth,
+    * or takes them from the cache.
+    * @param state name of encoded state
+    * @param depth depth of the expanded symbol
+    * @param sym expanded symbol ($ or #)
+    * @return List of applicable rules
+    */
+    @Override
+    protected List<Rule> applicableRules(String state, int depth, PDSymbol sym) {
+        String key = depth + state;
+        // get() of access-ordered map changes the order, so it is synchronized too
+        List<Rule> rules;
+        synchronized(cache) {
+            rules = cache.get(key);
+        }
+        if(rules == null) {
+            // Derived outside the lock, other thread can derive the same rules
+            List<Rule> derived = deriveRules(EncodedState.decode(state), depth);
+            synchronized(cache) {
+                rules = cache.putIfAbsent(key, derived);
+            }
+            if(rules == null) {
+                rules = derived;
+            }
+        }
+        return rules;
+    }
+
+    /**
+    * Converts rules of original automaton applicable in the encoded state.
+    * Same conversion as NDPDAr.convertRule(), only for one u and z.
+    */
+    private List<Rule> deriveRules(EncodedState encoded, int depth) {
+        List<Rule> rules = new ArrayList();
+        String fromSym = encoded.nonInputAt(depth);
+        int numOfZ = encoded.getNonInput().size() - depth;
+        if(fromSym == null || numOfZ > getN() - depth - 1) {
+            return rules;
+        }
+        PDSymbol from = fromSym.equals(PDSymbol.BOTTOM_NAME)
+                ? PDSymbol.BOTTOM
+                : regAuto.symbol(Type.NONTERMINAL, fromSym);
+        String specialSym = from.getType() == Type.BOTTOM ? PDSymbol.BOTTOM_NAME : EncodedState.SPECIAL_SYMBOL;
+
+        for(Rule regRule : regAuto.applicableRules(encoded.getState(), depth, from)) {
+            EncodedState next = encoded.apply(regRule);
+            Rule rule = new Rule(depth, encoded.getName(), next.getName(), specialSym, EncodedState.reducedSymbols(regRule));
+            rule.setSymbols(REDUCED_NON_INPUT);
+            rule.number = numbering.number(regRule, encoded.getNonInput(), depth);
+            if(rule.number < 0) {
+                throw new IllegalStateException("Number of rule " + rule + " doesn't fit to int.");
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /**
+    * State is end state if its original state is end state.
+    */
+    @Override
+    protected Boolean isEndState(String state) {
+        return regAuto.getEndStates().contains(EncodedState.decode(state).getState());
+    }
+}
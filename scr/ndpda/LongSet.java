@@ -0,0 +1,122 @@
+package ndpdar;
+
+import java.util.Arrays;
+
+/**
+ * Set of long values without boxing (open addressing, linear probing).
+ * Used for hashes of configurations on the current path of the search,
+ * configurations with the same hash are taken as the same one (see
+ * ConfigurationCache).
+ * 
+ * @author luciedvorakova
+ */
+public class LongSet {
+    static final private long EMPTY = 0;
+    
+    private long[] keys = new long[64];
+    private int size = 0;
+    private boolean containsEmpty = false;
+    
+    public boolean add(long key) {
+        if(key == EMPTY) {
+            boolean added = !containsEmpty;
+            containsEmpty = true;
+            return added;
+        }
+        if((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int i = index(key);
+        while(keys[i] != EMPTY) {
+            if(keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = key;
+        size++;
+        return true;
+    }
+    
+    public boolean contains(long key) {
+        if(key == EMPTY) {
+            return containsEmpty;
+        }
+        int i = index(key);
+        while(keys[i] != EMPTY) {
+            if(keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+        return false;
+    }
+    
+    /**
+    * Removes the key, following keys are moved back so no
+    * key is behind empty slot.
+    */
+    public void remove(long key) {
+        if(key == EMPTY) {
+            containsEmpty = false;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = index(key);
+        while(keys[i] != key) {
+            if(keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = EMPTY;
+        size--;
+        int j = i;
+        while(true) {
+            j = (j + 1) & mask;
+            if(keys[j] == EMPTY) {
+                return;
+            }
+            int home = index(keys[j]);
+            // Move key to the empty slot if its home is not between them
+            if(((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+    }
+    
+    /**
+    * Creates independent copy of the set.
+    * @return Copy of the set
+    */
+    public LongSet copy() {
+        LongSet copy = new LongSet();
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.size = size;
+        copy.containsEmpty = containsEmpty;
+        return copy;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsEmpty = false;
+    }
+    
+    private int index(long key) {
+        return (int) (key ^ (key >>> 32)) & (keys.length - 1);
+    }
+    
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        size = 0;
+        for(long key : old) {
+            if(key != EMPTY) {
+                add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package ndpdar;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Metrics of simulations, searches and conversions. Metrics listen
+ * to events of simulation and conversion (see SimulationListener) and
+ * compiled automaton reports every search to them. All counters can be
+ * updated from more threads at once.
+ *
+ * Metrics are enabled by NDPDA.enableMetrics(), conversion to NDPDAr
+ * is measured when metrics are given to NDPDAr(NDPDA, SimulationListener).
+ *
+ * @author luciedvorakova
+ */
+public class Metrics implements SimulationListener, MetricsMXBean {
+    final private LongAdder simulations = new LongAdder();
+    final private LongAdder accepted = new LongAdder();
+    final private LongAdder rulesApplied = new LongAdder();
+    final private LongAdder rulesRejected = new LongAdder();
+    final private LongAdder popMismatches = new LongAdder();
+    final private LongAdder symbolsMatched = new LongAdder();
+    final private LongAccumulator maxStackSize = new LongAccumulator(Math::max, 0);
+    final private LongAccumulator maxNonInput = new LongAccumulator(Math::max, 0);
+    final private Histogram simulationLatency = new Histogram();
+
+    final private LongAdder searches = new LongAdder();
+    final private LongAdder searchesAccepted = new LongAdder();
+    final private LongAdder rulesTried = new LongAdder();
+    final private LongAdder configurationsEntered = new LongAdder();
+    final private Histogram searchLatency = new Histogram();
+
+    final private LongAdder sourceRulesConverted = new LongAdder();
+    final private LongAdder rulesConverted = new LongAdder();
+    final private LongAdder conversionNanos = new LongAdder();
+    final private Histogram rulesPerSourceRule = new Histogram();
+
+    // Start of simulation, start of conversion and rules converted
+    // from current source rule (-1 before first one) in this thread
+    final private ThreadLocal<long[]> running = ThreadLocal.withInitial(() -> new long[3]);
+
+    @Override
+    public void started(String input, DeepPD pd) {
+        simulations.increment();
+        running.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void ruleApplied(Rule rule, DeepPD pd) {
+        rulesApplied.increment();
+        maxStackSize.accumulate(pd.size());
+        maxNonInput.accumulate(pd.numOfNonInput());
+    }
+
+    @Override
+    public void ruleRejected(int ruleNum, String reason) {
+        rulesRejected.increment();
+    }
+
+    @Override
+    public void symbolPopped(char sym) {
+        symbolsMatched.increment();
+    }
+
+    @Override
+    public void popMismatch(char input, char sym) {
+        popMismatches.increment();
+    }
+
+    @Override
+    public void finished(Boolean accepted) {
+        if(accepted) {
+            this.accepted.increment();
+        }
+        simulationLatency.record(System.nanoTime() - running.get()[0]);
+    }
+
+    @Override
+    public void conversionStarted(NDPDA automaton) {
+        long[] state = running.get();
+        state[1] = System.nanoTime();
+        state[2] = -1;
+    }
+
+    @Override
+    public void ruleConverting(Rule rule) {
+        long[] state = running.get();
+        if(state[2] >= 0) {
+            rulesPerSourceRule.record(state[2]);
+        }
+        state[2] = 0;
+        sourceRulesConverted.increment();
+    }
+
+    @Override
+    public void ruleConverted(String reduced) {
+        running.get()[2]++;
+        rulesConverted.increment();
+    }
+
+    @Override
+    public void conversionFinished(NDPDA reduced) {
+        long[] state = running.get();
+        if(state[2] >= 0) {
+            rulesPerSourceRule.record(state[2]);
+        }
+        state[2] = -1;
+        conversionNanos.add(System.nanoTime() - state[1]);
+    }
+
+    /**
+    * Records one search of configurations (NDPDA.search() or search
+    * of compiled automaton).
+    * @param nanos duration of the search
+    * @param tried number of tried rules
+    * @param entered number of explored configurations
+    * @param maxSize maximal number of symbols on PD
+    * @param maxNonInputSym maximal number of non-input symbols on PD
+    * @param accepted true if the input was accepted
+    */
+    public void searchDone(long nanos, long tried, long entered, int maxSize, int maxNonInputSym, boolean accepted) {
+        searches.increment();
+        if(accepted) {
+            searchesAccepted.increment();
+        }
+        rulesTried.add(tried);
+        configurationsEntered.add(entered);
+        maxStackSize.accumulate(maxSize);
+        maxNonInput.accumulate(maxNonInputSym);
+        searchLatency.record(nanos);
+    }
+
+    /**
+    * Registers metrics in platform MBean server.
+    * @param name object name, e.g. "ndpdar:type=Metrics,name=example"
+    * @throws JMException if metrics can't be registered
+    */
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    /**
+    * Current values of all metrics.
+    * @return Snapshot of metrics
+    */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+    * Values of metrics at one moment.
+    */
+    public static class Snapshot {
+        final private long simulations;
+        final private long accepted;
+        final private long rulesApplied;
+        final private long rulesRejected;
+        final private long popMismatches;
+        final private long symbolsMatched;
+        final private long maxStackSize;
+        final private long maxNonInput;
+        final private long searches;
+        final private long searchesAccepted;
+        final private long rulesTried;
+        final private long configurationsEntered;
+        final private long sourceRulesConverted;
+        final private long rulesConverted;
+        final private long maxRulesPerSourceRule;
+        final private long conversionNanos;
+        final private long[] simulationLatency; // p50, p90, p99, max
+        final private long[] searchLatency;
+
+        private Snapshot(Metrics m) {
+            simulations = m.simulations.sum();
+            accepted = m.accepted.sum();
+            rulesApplied = m.rulesApplied.sum();
+            rulesRejected = m.rulesRejected.sum();
+            popMismatches = m.popMismatches.sum();
+            symbolsMatched = m.symbolsMatched.sum();
+            maxStackSize = m.maxStackSize.get();
+            maxNonInput = m.maxNonInput.get();
+            searches = m.searches.sum();
+            searchesAccepted = m.searchesAccepted.sum();
+            rulesTried = m.rulesTried.sum();
+            configurationsEntered = m.configurationsEntered.sum();
+            sourceRulesConverted = m.sourceRulesConverted.sum();
+            rulesConverted = m.rulesConverted.sum();
+            maxRulesPerSourceRule = m.rulesPerSourceRule.getMax();
+            conversionNanos = m.conversionNanos.sum();
+            simulationLatency = latencies(m.simulationLatency);
+            searchLatency = latencies(m.searchLatency);
+        }
+
+        private static long[] latencies(Histogram h) {
+            return new long[] {h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.getMax()};
+        }
+
+        public long getSimulations() {
+            return simulations;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRulesApplied() {
+            return rulesApplied;
+        }
+
+        public long getRulesRejected() {
+            return rulesRejected;
+        }
+
+        public long getPopMismatches() {
+            return popMismatches;
+        }
+
+        public long getSymbolsMatched() {
+            return symbolsMatched;
+        }
+
+        public long getMaxStackSize() {
+            return maxStackSize;
+        }
+
+        public long getMaxNonInput() {
+            return maxNonInput;
+        }
+
+        public long getSearches() {
+            return searches;
+        }
+
+        public long getSearchesAccepted() {
+            return searchesAccepted;
+        }
+
+        public long getRulesTried() {
+            return rulesTried;
+        }
+
+        public long getConfigurationsEntered() {
+            return configurationsEntered;
+        }
+
+        public long getSourceRulesConverted() {
+            return sourceRulesConverted;
+        }
+
+        public long getRulesConverted() {
+            return rulesConverted;
+        }
+
+        public long getMaxRulesPerSourceRule() {
+            return maxRulesPerSourceRule;
+        }
+
+        public long getConversionNanos() {
+            return conversionNanos;
+        }
+
+        /**
+        * @return Latency of simulations in ns: p50, p90, p99 and max
+        */
+        public long[] getSimulationLatency() {
+            return simulationLatency.clone();
+        }
+
+        /**
+        * @return Latency of searches in ns: p50, p90, p99 and max
+        */
+        public long[] getSearchLatency() {
+            return searchLatency.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "simulations: " + simulations + " (accepted " + accepted + ")"
+                    + ", rules applied/rejected: " + rulesApplied + "/" + rulesRejected
+                    + ", symbols matched: " + symbolsMatched + ", pop mismatches: " + popMismatches
+                    + "\nsearches: " + searches + " (accepted " + searchesAccepted + ")"
+                    + ", rules tried: " + rulesTried + ", configurations: " + configurationsEntered
+                    + "\nmax PD size: " + maxStackSize + ", max non-input symbols: " + maxNonInput
+                    + "\nconverted rules: " + sourceRulesConverted + " -> " + rulesConverted
+                    + " (max " + maxRulesPerSourceRule + " per rule) in " + conversionNanos / 1000000 + " ms"
+                    + "\nsimulation latency p50/p90/p99/max (ns): " + latencyString(simulationLatency)
+                    + "\nsearch latency p50/p90/p99/max (ns): " + latencyString(searchLatency);
+        }
+
+        private static String latencyString(long[] latency) {
+            return latency[0] + "/" + latency[1] + "/" + latency[2] + "/" + latency[3];
+        }
+    }
+
+    /*
+    *   GETTERS
+    */
+    @Override
+    public long getSimulations() {
+        return simulations.sum();
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRulesApplied() {
+        return rulesApplied.sum();
+    }
+
+    @Override
+    public long getRulesRejected() {
+        return rulesRejected.sum();
+    }
+
+    @Override
+    public long getPopMismatches() {
+        return popMismatches.sum();
+    }
+
+    @Override
+    public long getSymbolsMatched() {
+        return symbolsMatched.sum();
+    }
+
+    @Override
+    public long getMaxStackSize() {
+        return maxStackSize.get();
+    }
+
+    @Override
+    public long getMaxNonInput() {
+        return maxNonInput.get();
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getSearchesAccepted() {
+        return searchesAccepted.sum();
+    }
+
+    @Override
+    public long getRulesTried() {
+        return rulesTried.sum();
+    }
+
+    @Override
+    public long getConfigurationsEntered() {
+        return configurationsEntered.sum();
+    }
+
+    @Override
+    public long getSourceRulesConverted() {
+        return sourceRulesConverted.sum();
+    }
+
+    @Override
+    public long getRulesConverted() {
+        return rulesConverted.sum();
+    }
+
+    @Override
+    public long getConversionNanos() {
+        return conversionNanos.sum();
+    }
+
+    @Override
+    public long getSimulationLatencyP50() {
+        return simulationLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getSimulationLatencyP99() {
+        return simulationLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getSearchLatencyP50() {
+        return searchLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getSearchLatencyP99() {
+        return searchLatency.percentile(0.99);
+    }
+}
@@ -0,0 +1,29 @@
+package ndpdar;
+
+/**
+ * Management interface of Metrics, so the metrics can be read by JMX
+ * (see Metrics.register()).
+ *
+ * @author luciedvorakova
+ */
+public interface MetricsMXBean {
+    long getSimulations();
+    long getAccepted();
+    long getRulesApplied();
+    long getRulesRejected();
+    long getPopMismatches();
+    long getSymbolsMatched();
+    long getMaxStackSize();
+    long getMaxNonInput();
+    long getSearches();
+    long getSearchesAccepted();
+    long getRulesTried();
+    long getConfigurationsEntered();
+    long getSourceRulesConverted();
+    long getRulesConverted();
+    long getConversionNanos();
+    long getSimulationLatencyP50();
+    long getSimulationLatencyP99();
+    long getSearchLatencyP50();
+    long getSearchLatencyP99();
+}
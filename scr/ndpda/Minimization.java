@@ -0,0 +1,210 @@
+package ndpdar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Optimization of rules of reduced automaton after conversion. 
+ * 
+ * 1. Dead states are dropped: states that can't be reached from the start
+ *    state, or from which no end state can be reached (only the states
+ *    and rules are considered, not the pushdown).
+ * 2. Equivalent states are merged: states are equivalent if both are
+ *    (or both aren't) end states and they have the same rules leading
+ *    to equivalent states (computed by partition refinement as in
+ *    minimization of finite automata). Such states accept the same
+ *    inputs with any content of the pushdown.
+ * 3. Identical rules are saved only once.
+ * 
+ * Order of rules is kept, so every new rule has the number of its first
+ * old occurrence among the kept rules. Mapping from old rule numbers
+ * to new ones is kept, so rule sequences of the original automaton can
+ * be replayed on the minimized one.
+ *
+ * @author luciedvorakova
+ */
+public class Minimization {
+    final private NDPDAr automaton;
+    final private int[] ruleMapping; // [old number - 1] -> new number, 0 if dropped
+    
+    /**
+    * Minimizes the reduced automaton, original automaton isn't changed.
+    * @param original converted reduced automaton
+    */
+    public Minimization(NDPDAr original) {
+        List<Rule> rules = original.getExpansionRules();
+        ruleMapping = new int[rules.size()];
+        
+        HashSet<String> live = liveStates(original);
+        List<Rule> liveRules = new ArrayList();
+        for(Rule rule : rules) {
+            if(live.contains(rule.startState) && live.contains(rule.endState)) {
+                liveRules.add(rule);
+            }
+        }
+        HashMap<String, String> representative = mergeStates(original, live, liveRules);
+        
+        String startState = representative.getOrDefault(original.getStartState(), original.getStartState());
+        HashSet<String> endStates = new HashSet();
+        for(String state : original.getEndStates()) {
+            if(live.contains(state)) {
+                endStates.add(representative.get(state));
+            }
+        }
+        automaton = new NDPDAr(original.getN(), 0, startState, original.getStartPDSym().getName(), endStates);
+        
+        HashMap<List<Object>, Integer> known = new HashMap();
+        for(Rule rule : rules) {
+            if(!live.contains(rule.startState) || !live.contains(rule.endState)) {
+                continue;
+            }
+            String start = representative.get(rule.startState);
+            String end = representative.get(rule.endState);
+            List<Object> key = ruleKey(rule, start, end);
+            Integer number = known.get(key);
+            if(number == null) {
+                automaton.addRule(rule.depth, start, rule.fromSym.getName(), end, new ArrayList<>(rule.toSymbolNames()));
+                number = automaton.getExpansionRules().size();
+                known.put(key, number);
+            }
+            ruleMapping[rule.number - 1] = number;
+        }
+        automaton.automatSettingDone();
+    }
+    
+    /**
+    * States reachable from the start state from which some end state
+    * can be reached.
+    */
+    private static HashSet<String> liveStates(NDPDA original) {
+        HashMap<String, List<String>> next = new HashMap();
+        HashMap<String, List<String>> previous = new HashMap();
+        for(Rule rule : original.getExpansionRules()) {
+            next.computeIfAbsent(rule.startState, state -> new ArrayList<>()).add(rule.endState);
+            previous.computeIfAbsent(rule.endState, state -> new ArrayList<>()).add(rule.startState);
+        }
+        HashSet<String> reachable = explore(next, Arrays.asList(original.getStartState()));
+        HashSet<String> useful = explore(previous, original.getEndStates());
+        reachable.retainAll(useful);
+        return reachable;
+    }
+    
+    private static HashSet<String> explore(HashMap<String, List<String>> edges, Iterable<String> from) {
+        HashSet<String> found = new HashSet();
+        Deque<String> toExplore = new ArrayDeque();
+        for(String state : from) {
+            if(found.add(state)) {
+                toExplore.add(state);
+            }
+        }
+        while(!toExplore.isEmpty()) {
+            for(String state : edges.getOrDefault(toExplore.poll(), new ArrayList<>())) {
+                if(found.add(state)) {
+                    toExplore.add(state);
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+    * Splits live states to classes of equivalent states.
+    * @return Representative (first state of the class in order of rules)
+    *          for every live state
+    */
+    private static HashMap<String, String> mergeStates(NDPDA original, HashSet<String> live, List<Rule> rules) {
+        // Live states in order of their first occurrence
+        LinkedHashSet<String> states = new LinkedHashSet();
+        if(live.contains(original.getStartState())) {
+            states.add(original.getStartState());
+        }
+        HashMap<String, List<Rule>> outgoing = new HashMap();
+        for(Rule rule : rules) {
+            states.add(rule.startState);
+            states.add(rule.endState);
+            outgoing.computeIfAbsent(rule.startState, state -> new ArrayList<>()).add(rule);
+        }
+        
+        HashMap<String, Integer> classOf = new HashMap();
+        for(String state : states) {
+            classOf.put(state, original.getEndStates().contains(state) ? 1 : 0);
+        }
+        int numOfClasses = -1;
+        while(true) {
+            HashMap<List<Object>, Integer> classes = new HashMap();
+            HashMap<String, Integer> refined = new HashMap();
+            for(String state : states) {
+                HashSet<List<Object>> signature = new HashSet();
+                for(Rule rule : outgoing.getOrDefault(state, new ArrayList<>())) {
+                    signature.add(ruleKey(rule, null, classOf.get(rule.endState)));
+                }
+                List<Object> key = new ArrayList();
+                key.add(classOf.get(state));
+                key.add(signature);
+                refined.put(state, classes.computeIfAbsent(key, k -> classes.size()));
+            }
+            classOf = refined;
+            if(classes.size() == numOfClasses) {
+                break;
+            }
+            numOfClasses = classes.size();
+        }
+        
+        HashMap<Integer, String> first = new HashMap();
+        HashMap<String, String> representative = new HashMap();
+        for(String state : states) {
+            representative.put(state, first.computeIfAbsent(classOf.get(state), c -> state));
+        }
+        return representative;
+    }
+    
+    private static List<Object> ruleKey(Rule rule, Object start, Object end) {
+        List<Object> key = new ArrayList();
+        key.add(rule.depth);
+        key.add(start);
+        key.add(rule.fromSym.getName());
+        key.add(end);
+        key.add(rule.toSymbolNames());
+        return key;
+    }
+    
+    /**
+    * Maps sequence of rules of original automaton to the minimized one.
+    * @param rulesNum numbers of rules of original automaton
+    * @return Numbers of rules of minimized automaton, null if some rule
+    *          was dropped
+    */
+    public List<Integer> mapRules(List<Integer> rulesNum) {
+        List<Integer> mapped = new LinkedList();
+        for(int ruleNum : rulesNum) {
+            if(ruleNum < 1 || ruleNum > ruleMapping.length || ruleMapping[ruleNum - 1] == 0) {
+                return null;
+            }
+            mapped.add(ruleMapping[ruleNum - 1]);
+        }
+        return mapped;
+    }
+    
+    /*
+    *   GETTERS
+    */
+    public NDPDAr getAutomaton() {
+        return automaton;
+    }
+    
+    /**
+    * @return Array where [old number - 1] is new number of the rule,
+    *          0 if rule was dropped
+    */
+    public int[] getRuleMapping() {
+        return ruleMapping.clone();
+    }
+}
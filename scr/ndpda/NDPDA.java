@@ -1,11 +1,19 @@
 package ndpdar;
 
-import static java.lang.System.err;
-import static java.lang.System.out;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import ndpdar.PDSymbol.Type;
 
 /**
@@ -20,49 +28,61 @@ import ndpdar.PDSymbol.Type;
  * @author luciedvorakova
  */
 public class NDPDA {
-    final private PDSymbol BOTTOM_SYMBOL = new PDSymbol(Type.BOTTOM, null);
+    final private PDSymbol BOTTOM_SYMBOL = PDSymbol.BOTTOM;
     final private int n; // number of non-input symbols on PD
     final private HashSet<String> states = new HashSet();
     final private HashSet<PDSymbol> inputAlph = new HashSet();
     final private HashSet<PDSymbol> nonInputAlph = new HashSet();
     final private List<Rule> expansionRules = new ArrayList();
+    // Rules by depth (index depth - 1), start state and expanded symbol
+    final private List<HashMap<String, HashMap<PDSymbol, List<Rule>>>> ruleIndex = new ArrayList();
     
     
     private HashSet<String> allSymbols = new HashSet();
     private HashSet<String> nonInputSymbols = new HashSet();
+    // Shared symbols of rules by type (index is ordinal of type) and name
+    final private ConcurrentHashMap<String, PDSymbol>[] symbolPool = new ConcurrentHashMap[]{
+        new ConcurrentHashMap(), new ConcurrentHashMap(), new ConcurrentHashMap()};
 
     final private String startState;
     final private PDSymbol startPDSym;
     final private HashSet<String> endStates;
     
-    final private DeepPD dpda;
-    
-    private Boolean settingDone = false;
-    private String curState;
+    volatile private Boolean settingDone = false;
+    private int numOfSetRules = 0; // rules set by automatSettingDone()
+    private boolean reclassified = false; // input symbol became non-input one
+    volatile private CompiledNDPDA compiled = null;
+    private SimulationListener listener = SimulationListener.NO_OP;
+    private boolean incremental = false;
+    volatile private Metrics metrics = null;
     
     public NDPDA(int n, String startState, String startPDSym, HashSet<String> endStates){
         this.n = n;
         this.startState = startState;
-        this.startPDSym = new PDSymbol(Type.NONTERMINAL, startPDSym);
+        this.startPDSym = symbol(Type.NONTERMINAL, startPDSym);
         this.endStates = endStates;
         
-        dpda = new DeepPD(this.startPDSym);
         nonInputAlph.add(BOTTOM_SYMBOL);
+        for(int depth = 1; depth <= n; depth++) {
+            ruleIndex.add(new HashMap());
+        }
     }
     /**
-    * Structure of individual rules.
+    * Structure of individual rules. Symbols on the right side are
+    * shared PDSymbol instances kept in array. Until the rule is set
+    * by setSymbols(), all of them are saved as input symbols.
     */
     public class Rule{
         final int depth;
         final String startState;
         final String endState;
         final PDSymbol fromSym;
-        final List<PDSymbol> toSymbols = new LinkedList();
-        final ArrayList<String>  toSymbolString;
+        final PDSymbol[] toSymbols;
         
         int numOfNonInputSym = 0;
+        int number; // position in list of rules, starting with 1
         
-        public Rule(int depth, String startState, String endState, String fromSym, ArrayList<String> toSymbolsString) {
+        public Rule(int depth, String startState, String endState, String fromSym, List<String> toSymbolsString) {
             this.depth = depth;
             this.startState = startState;
             this.endState = endState;
@@ -71,15 +91,52 @@ public class NDPDA {
                 this.fromSym = BOTTOM_SYMBOL;
             }
             else {
-                this.fromSym = new PDSymbol(Type.NONTERMINAL, fromSym); 
+                this.fromSym = symbol(Type.NONTERMINAL, fromSym); 
+            }
+            this.toSymbols = new PDSymbol[toSymbolsString.size()];
+            for(int i = 0; i < toSymbols.length; i++) {
+                toSymbols[i] = symbol(Type.TERMINAL, toSymbolsString.get(i));
             }
-            this.toSymbolString = toSymbolsString;
             numOfNonInputSym = 0;
         }
         
+        /**
+        * Sets type of symbols on the right side of the rule.
+        * @param nonInputSymbols names of non-input symbols
+        */
+        void setSymbols(HashSet<String> nonInputSymbols) {
+            numOfNonInputSym = 0;
+            for(int i = 0; i < toSymbols.length; i++) {
+                String sym = toSymbols[i].getName();
+                if(nonInputSymbols.contains(sym)) {
+                    toSymbols[i] = symbol(Type.NONTERMINAL, sym);
+                    numOfNonInputSym++;
+                }
+                else if(sym.equals("#")) {
+                    toSymbols[i] = BOTTOM_SYMBOL;
+                    numOfNonInputSym++;
+                }
+                else {
+                    toSymbols[i] = symbol(Type.TERMINAL, sym);
+                }
+            }
+        }
+        
+        /**
+        * Names of symbols on the right side of the rule.
+        * @return List of names
+        */
+        List<String> toSymbolNames() {
+            List<String> names = new ArrayList(toSymbols.length);
+            for(PDSymbol sym : toSymbols) {
+                names.add(sym.getName());
+            }
+            return names;
+        }
+        
         @Override
         public String toString() {
-            return depth + startState + fromSym.getName() + "->" + endState + myToString(toSymbolString);
+            return depth + startState + fromSym.getName() + "->" + endState + myToString(toSymbolNames());
         }
     } 
     
@@ -101,6 +158,19 @@ public class NDPDA {
         insertValues(rule);
     }
     
+    /**
+     * Adding individual rule without creating the list of symbols first.
+     * @param depth Depth of expanded non-input symbol
+     * @param startState From state
+     * @param fromSym Non-input symbol, that will be expanded
+     * @param endState To state
+     * @param toSymbols Symbols replacing the expanded non-iput symbol
+    */
+    public void addRule(int depth, String startState,  String fromSym, String endState, String... toSymbols) {
+        Rule rule = new Rule(depth, startState, endState, fromSym, Arrays.asList(toSymbols));
+        insertValues(rule);
+    }
+    
     /**
      * Adding individual pop rule. Pop rules are perfomed after all expantion are made
      * @param startState From state
@@ -112,6 +182,25 @@ public class NDPDA {
     //    insertValues(rule);
     //}
     
+    /**
+    * Shared instance of the symbol. Returned symbol is equal to
+    * new PDSymbol(type, name), but all rules of this automaton use
+    * the same instance. Symbols are kept only as long as the automaton.
+    * @param type type of the symbol
+    * @param name name of the symbol, ignored for bottom symbol
+    * @return Shared symbol
+    */
+    PDSymbol symbol(Type type, String name) {
+        if(type == Type.BOTTOM) {
+            return BOTTOM_SYMBOL;
+        }
+        PDSymbol sym = symbolPool[type.ordinal()].get(name);
+        if(sym == null) {
+            sym = symbolPool[type.ordinal()].computeIfAbsent(name, key -> new PDSymbol(type, key));
+        }
+        return sym;
+    }
+    
     /**
     * Parsing rules to create input and non-input alphabet.
     * @param rule 
@@ -120,132 +209,316 @@ public class NDPDA {
         states.add(rule.startState);
         states.add(rule.endState);
         
-        nonInputSymbols.add(rule.fromSym.getName());
+        String from = rule.fromSym.getName();
+        if(!nonInputSymbols.contains(from) && allSymbols.contains(from)) {
+            // Rules pushing the symbol were set with input symbol
+            reclassified = true;
+        }
+        nonInputSymbols.add(from);
         nonInputAlph.add(rule.fromSym);
-        for(String sym : rule.toSymbolString) {
-            allSymbols.add(sym);
+        for(PDSymbol sym : rule.toSymbols) {
+            allSymbols.add(sym.getName());
         }
         expansionRules.add(rule);
+        rule.number = expansionRules.size();
 
         settingDone = false;
+        compiled = null;
     }
     
     
     /**
     * Before parsing using automaton, all symbols on the right
-    * side of the rules are coverted to PDSymbol. 
-    * This operation is done only first time the automaton is run.
+    * side of the rules are coverted to PDSymbol and rules are indexed. 
+    * Only rules added since the last call are set, so the setting
+    * can be done after every added rule. When symbol that was used 
+    * as input symbol becomes non-input symbol (new rule expands it),
+    * all rules are set again.
     */
-    public void automatSettingDone() {
-        for(String sym : allSymbols){
-            if(!nonInputSymbols.contains(sym)){
-                inputAlph.add(new PDSymbol(Type.TERMINAL, sym));
+    public synchronized void automatSettingDone() {
+        if(reclassified) {
+            inputAlph.clear();
+            for(HashMap<String, HashMap<PDSymbol, List<Rule>>> byState : ruleIndex) {
+                byState.clear();
             }
+            numOfSetRules = 0;
+            reclassified = false;
         }
-        for(Rule rule : expansionRules){
-            for(String sym : rule.toSymbolString){
-                if(nonInputSymbols.contains(sym)) {
-                    rule.toSymbols.add(new PDSymbol(Type.NONTERMINAL, sym));
-                    rule.numOfNonInputSym++;
-                }
-                else if(sym.equals("#")) {
-                    rule.toSymbols.add(BOTTOM_SYMBOL);
-                    rule.numOfNonInputSym++;
-                }
-                else {
-                    rule.toSymbols.add(new PDSymbol(Type.TERMINAL, sym));
-                }
-            }
+        for(int i = numOfSetRules; i < expansionRules.size(); i++) {
+            setRule(expansionRules.get(i));
         }
+        numOfSetRules = expansionRules.size();
         settingDone = true;
     }
     
+    /**
+    * Converts symbols of the rule to PDSymbol, adds its input symbols
+    * to the input alphabet and adds the rule to the rule index.
+    * @param rule rule that isn't set yet
+    */
+    private void setRule(Rule rule) {
+        rule.setSymbols(nonInputSymbols);
+        for(PDSymbol sym : rule.toSymbols) {
+            if(!nonInputSymbols.contains(sym.getName())) {
+                inputAlph.add(symbol(Type.TERMINAL, sym.getName()));
+            }
+        }
+        indexRule(rule);
+    }
+    
+    /**
+    * Sorts rule by depth, start state and non-input symbol it expands,
+    * so only applicable rules are tried during the search. Rules with
+    * depth bigger than n can never be applied and are left out.
+    */
+    private void indexRule(Rule rule) {
+        if(rule.depth < 1 || rule.depth > n) {
+            return;
+        }
+        ruleIndex.get(rule.depth - 1)
+                .computeIfAbsent(rule.startState, state -> new HashMap<>())
+                .computeIfAbsent(rule.fromSym, sym -> new ArrayList<>())
+                .add(rule);
+    }
+    
+    /**
+    * Rules that can expand given non-input symbol in given depth
+    * of the pushdown when automaton is in given state.
+    * @param state current state
+    * @param depth depth of the non-input symbol
+    * @param sym non-input symbol
+    * @return List of applicable rules ordered by their number
+    */
+    protected List<Rule> applicableRules(String state, int depth, PDSymbol sym) {
+        if(depth < 1 || depth > ruleIndex.size()) {
+            return Collections.emptyList();
+        }
+        HashMap<PDSymbol, List<Rule>> bySymbol = ruleIndex.get(depth - 1).get(state);
+        if(bySymbol == null) {
+            return Collections.emptyList();
+        }
+        return bySymbol.getOrDefault(sym, Collections.emptyList());
+    }
+    
     /**
     * Top-down parsing using the specified automata. 
     * If list of rules is given the simulator will follow
     * it, in other case it will try its best.
+    * Every call runs in new Execution, so automaton can be used
+    * by more threads at the same time. See setIncremental() for
+    * popping of input symbols during expansions.
     * @param input String of input character
     * @param rulesNum list giving order of used rules
     * @return Returns true if string is accepted by automaton, 
     *          else returns false.
     */
     public Boolean simulate(String input, List<Integer> rulesNum) {
-        if (!settingDone){
-            automatSettingDone();
-        }
-        out.println("\nInput string: " + input + "\n");
-        out.println(dpda.toString());
-        curState = startState;
-        
-        Rule rule;
-        for(int ruleNum : rulesNum) {
-            if(expansionRules.size() > ruleNum - 1  && ruleNum > 0) {
-                rule = expansionRules.get(ruleNum - 1);
-            }
-            else {
-               err.println("Rule number " + ruleNum + " doesn't exist");
-               return false;
-            }
-   
-            if(!rule.startState.equals(curState)) {
-                err.println("Rule start state " + rule.startState + " doesn't match with current state " + curState + ".");
-                return false;
-            }
-            
-            // Applying the rule would exceed the nomber of non-input
-            // symbols on the pushdown.
-            if(dpda.numOfNonInput() + rule.numOfNonInputSym - 1 > n){
-                err.println("Rule cannot be applied, number od non-input symbols on PD exceeds n (n = " + n + " ).");
-                return false;
-            }
-            Boolean succ = dpda.expand(rule);
-            if(succ) {
-                out.println("Successfully applied: " + rule);
-                curState = rule.endState;
+        ensureSettingDone();
+        return new Execution(this, runListener()).run(input, rulesNum);
+    }
+    
+    /**
+    * Top-down parsing of input read from the stream, using the specified
+    * automata and list of rules. Input is never loaded whole, input 
+    * symbols are matched and popped as soon as they are on the top of 
+    * the pushdown, even before expansion phase is done. After popping
+    * phase only whitespaces can be left in the input.
+    * @param input stream of input characters
+    * @param rulesNum list giving order of used rules
+    * @return Returns true if input is accepted by automaton, 
+    *          else returns false.
+    * @throws IOException if the input can't be read
+    */
+    public Boolean simulate(Reader input, List<Integer> rulesNum) throws IOException {
+        ensureSettingDone();
+        return new Execution(this, runListener()).run(input, rulesNum);
+    }
+    
+    /**
+    * Top-down parsing of input read from the channel (UTF-8).
+    * @param input channel of input characters
+    * @param rulesNum list giving order of used rules
+    * @return Returns true if input is accepted by automaton, 
+    *          else returns false.
+    * @throws IOException if the input can't be read
+    * @see #simulate(Reader, List)
+    */
+    public Boolean simulate(ReadableByteChannel input, List<Integer> rulesNum) throws IOException {
+        return simulate(Channels.newReader(input, StandardCharsets.UTF_8.newDecoder(), -1), rulesNum);
+    }
+    
+    /**
+    * Does the automaton setting if it wasn't done yet. Only one thread
+    * does the setting, others wait until it is done.
+    */
+    void ensureSettingDone() {
+        if(!settingDone) {
+            synchronized(this) {
+                if(!settingDone) {
+                    automatSettingDone();
+                }
             }
-            else {
-                err.println("Application of rule was unsuccessful: " + rule);
-                return false;
+        }
+    }
+    
+    /**
+    * Compiles the automaton to the form with interned states and symbols.
+    * Input symbols are split to characters, so the compiled search
+    * accepts the same inputs as search(). Compiled automaton is kept
+    * until new rule is added, then the next call compiles the whole
+    * automaton again. Unlike automatSettingDone(), compiling isn't
+    * incremental: compiled automaton can be used by running searches,
+    * so it is never changed, and new non-input symbol changes ids
+    * of all input symbols.
+    * @return Compiled automaton
+    */
+    public CompiledNDPDA compile() {
+        CompiledNDPDA result = compiled;
+        if(result == null) {
+            synchronized(this) {
+                ensureSettingDone();
+                if(compiled == null) {
+                    compiled = CompiledNDPDA.compile(this);
+                    compiled.setMetrics(metrics);
+                }
+                result = compiled;
             }
-            out.println(dpda.toString());
-            //out.println(dpda.nonInputToString());
         }
+        return result;
+    }
+    
+    /**
+    * Compiles the automaton so that every input symbol stays one symbol
+    * of the compiled automaton. Input is then split by the longest
+    * matching input symbol (or by WhitespaceTokenizer), e.g. with input
+    * symbols val, v, a and l the input "val" is only val, so some inputs
+    * accepted by simulate(String) can be rejected. Compiled automaton
+    * isn't kept.
+    * @return Compiled automaton
+    */
+    public CompiledNDPDA compileTokens() {
+        ensureSettingDone();
+        CompiledNDPDA result = CompiledNDPDA.compile(this, true);
+        result.setMetrics(metrics);
+        return result;
+    }
+    
+    /**
+    * Top-down parsing without given list of rules. Searches through
+    * configurations of the automaton (state and content of the pushdown)
+    * until accepting configuration is found. Branch is abandoned if 
+    * applying the rule would exceed n non-input symbols on the PD
+    * or if the input symbols that can't be changed anymore don't match
+    * the input. Every configuration is explored only once.
+    * Whole configurations are compared, so the result is exact,
+    * see search().
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance, 
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> simulate(String input) {
+        return search(input);
+    }
+    
+    /**
+    * Same search as simulate(String), but it runs on compiled automaton
+    * and configurations are identified only by 64-bit hash. Found rules
+    * are always right, but the input can be rejected because of hash
+    * collision (very unlikely, see ConfigurationCache).
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance, 
+    *          null if string isn't accepted by automaton or the search
+    *          was cut by hash collision.
+    */
+    public List<Integer> simulateHashed(String input) {
+        return compile().simulate(input);
+    }
+    
+    /**
+    * Search of simulate(String), it works directly with the rules
+    * returned by applicableRules(), so it is used also by automata that
+    * don't know all their rules in advance. Visited configurations are
+    * kept whole and compared by equals(), so the result is exact.
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance, 
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> search(String input) {
+        ensureSettingDone();
+        char[] inputArray = withoutWhitespace(input);
         
-        out.println();
-        if(dpda.isExpansionDone()){
-            out.println("Expansion phase done!\n");
-        }
-        else {
-            return false;
-        }
-        //out.println(dpda.toString());
-        //out.println(dpda.nonInputToString());
+        Deque<Configuration> toExplore = new ArrayDeque();
+        HashSet<Configuration> visited = new HashSet();
+        Configuration start = new Configuration(startState, startPDSym, BOTTOM_SYMBOL);
+        toExplore.push(start);
+        visited.add(start);
         
-        int i = 0;
-        char[] inputArray = input.toCharArray();
-        while(!dpda.isPDEmpty()){
-            String val = dpda.pop().getName();
-            for(char sym : val.toCharArray()) {
-                while (Character.isWhitespace(inputArray[i])) {
-                    i++;
+        Metrics m = metrics;
+        long startTime = m == null ? 0 : System.nanoTime();
+        long tried = 0;
+        int maxSize = start.size();
+        int maxNonInput = start.numOfNonInput();
+        List<Integer> result = null;
+        try {
+            while(!toExplore.isEmpty()) {
+                Configuration conf = toExplore.pop();
+                if(conf.isExpansionDone(inputArray) && isEndState(conf.getState())) {
+                    result = conf.getRules();
+                    return result;
                 }
-                if(sym != inputArray[i]){
-                    err.println(inputArray[i] + " doesn't mach symbol " + sym + " on stack.");
-                    return false;
+                
+                for(int depth = conf.numOfNonInput(); depth >= 1; depth--) {
+                    List<Rule> rules = applicableRules(conf.getState(), depth, conf.nonInputAt(depth));
+                    for(int i = rules.size() - 1; i >= 0; i--) {
+                        Rule rule = rules.get(i);
+                        tried++;
+                        // Applying the rule would exceed the nomber of non-input
+                        // symbols on the pushdown.
+                        if(conf.numOfNonInput() + rule.numOfNonInputSym - 1 > n) {
+                            continue;
+                        }
+                        Configuration next = conf.expand(rule, rule.number);
+                        if(next.matchesPrefix(inputArray) && visited.add(next)) {
+                            toExplore.push(next);
+                            maxSize = Math.max(maxSize, next.size());
+                            maxNonInput = Math.max(maxNonInput, next.numOfNonInput());
+                        }
+                    }
                 }
-                i++;
             }
+            return null;
         }
-        out.println("Poping phase done!\n");
-        //out.println(dpda.toString());
-        //out.println(dpda.nonInputToString());
-        
-        if(!endStates.contains(curState)){
-            err.println(curState + " is not an end state.");
-            return false;
+        finally {
+            if(m != null) {
+                m.searchDone(System.nanoTime() - startTime, tried, visited.size(),
+                        maxSize, maxNonInput, result != null);
+            }
         }
-
-        return dpda.isPDEmpty();
+    }
+    
+    /**
+    * Is the state one of the end states.
+    * @param state name of the state
+    * @return True if the state is end state
+    */
+    protected Boolean isEndState(String state) {
+        return endStates.contains(state);
+    }
+    
+    /**
+    * Removes whitespaces from input, same as they are skipped
+    * in popping phase.
+    * @param input String of input character
+    * @return Input characters without whitespaces
+    */
+    static char[] withoutWhitespace(String input) {
+        StringBuilder sb = new StringBuilder();
+        for(char c : input.toCharArray()) {
+            if(!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toCharArray();
     }
     
     @Override
@@ -297,7 +570,7 @@ public class NDPDA {
          sb.append("}");
         return sb.toString();
     }
-    private String myToString(ArrayList<String> al){
+    private String myToString(List<String> al){
         StringBuilder sb = new StringBuilder();
         for(String s : al) {
             sb.append(" ");
@@ -328,10 +601,74 @@ public class NDPDA {
         return expansionRules;
     }
     
+    public Boolean isSettingDone() {
+        return settingDone;
+    }
+    
     public HashSet<String> getNonInputSymbols() {
         return nonInputSymbols;
     }
     
+    public SimulationListener getListener() {
+        return listener;
+    }
+    
+    /**
+    * Sets listener of simulation events, e.g. TextTracer to print
+    * the simulation.
+    * @param listener listener, NO_OP if nothing should happen
+    */
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+    * Starts collecting metrics of all simulations and searches of this
+    * automaton, in addition to the listener.
+    * @return Metrics of the automaton
+    */
+    public synchronized Metrics enableMetrics() {
+        if(metrics == null) {
+            metrics = new Metrics();
+            if(compiled != null) {
+                compiled.setMetrics(metrics);
+            }
+        }
+        return metrics;
+    }
+    
+    /**
+    * Current values of metrics, enableMetrics() has to be called before.
+    * @return Snapshot of metrics, null if metrics aren't enabled
+    */
+    public Metrics.Snapshot getMetricsSnapshot() {
+        Metrics m = metrics;
+        return m == null ? null : m.snapshot();
+    }
+    
+    /**
+    * Listener of one simulation, the set listener and metrics.
+    */
+    private SimulationListener runListener() {
+        Metrics m = metrics;
+        return m == null ? listener : listener.andThen(m);
+    }
+    
+    public boolean isIncremental() {
+        return incremental;
+    }
+    
+    /**
+    * Sets incremental mode of simulate(String, List). Input symbols are
+    * then popped and matched with the input as soon as they are on the top
+    * of the pushdown, not only after all expansions are done. Run with wrong
+    * rules is rejected earlier and the pushdown stays smaller.
+    * @param incremental true if input symbols should be popped during expansions
+    */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+    
     public void addEndState(String endState) {
         endStates.add(endState);
     }
@@ -1,11 +1,15 @@
 package ndpdar;
 
-import static java.lang.System.out;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import ndpdar.PDSymbol.Type;
 
 /**
@@ -19,8 +23,16 @@ import ndpdar.PDSymbol.Type;
  * @author luciedvorakova
  */
 public class NDPDAr extends NDPDA{
-    final private PDSymbol BOTTOM_SYMBOL = new PDSymbol(Type.BOTTOM, null);
-    final private PDSymbol SPECIAL_SYMBOL = new PDSymbol(Type.NONTERMINAL, "$");
+    /**
+    * Which rules are created by conversion. ALL creates rules for all
+    * encoded states, REACHABLE only for encoded states reachable from the
+    * start state, USEFUL only for reachable states from which accepting
+    * state (end state without non-input symbols) can be reached.
+    */
+    public enum Conversion {ALL, REACHABLE, USEFUL}
+    
+    final private PDSymbol BOTTOM_SYMBOL = PDSymbol.BOTTOM;
+    final private PDSymbol SPECIAL_SYMBOL = symbol(Type.NONTERMINAL, "$");
     
     final private HashSet<String> nonInputSymbols = new HashSet();
     
@@ -34,12 +46,277 @@ public class NDPDAr extends NDPDA{
     * @param regAuto NDPDA automat that will be converted
     */
     public NDPDAr(NDPDA regAuto){
+        this(regAuto, SimulationListener.NO_OP);
+    }
+    
+    /**
+    * Construct that takes as input regular n-expandable DPDA, conversion
+    * is reported to given listener, which is used for simulation too.
+    * 
+    * @param regAuto NDPDA automat that will be converted
+    * @param listener listener of conversion and simulation
+    */
+    public NDPDAr(NDPDA regAuto, SimulationListener listener){
         super(regAuto.getN(), regAuto.getStartState() + regAuto.getStartPDSym().getName(), "$", regAuto.getEndStates());
         
+        setListener(listener);
+        convertAll(regAuto);
+        //out.println(this.toString());
+    }
+    
+    /**
+    * Construct that converts rules of regular n-expandable DPDA in parallel.
+    * Rules are split to tasks by the original rule and for deep rules by
+    * part of all u strings. Result is the same as from NDPDAr(NDPDA),
+    * including the order of rules.
+    * 
+    * @param regAuto NDPDA automat that will be converted
+    * @param pool pool that runs the conversion
+    */
+    public NDPDAr(NDPDA regAuto, ForkJoinPool pool){
+        super(regAuto.getN(), regAuto.getStartState() + regAuto.getStartPDSym().getName(), "$", regAuto.getEndStates());
+        
+        List<ConvertTask> tasks = new ArrayList();
         for(Rule rule : regAuto.getExpansionRules()) {
-            convertRule(rule, regAuto.getNonInputSymbols());
+            tasks.add(new ConvertTask(rule, regAuto.getNonInputSymbols()));
         }
-        //out.println(this.toString());
+        for(ConvertTask task : tasks) {
+            pool.execute(task);
+        }
+        for(ConvertTask task : tasks) {
+            for(ReducedRule reduced : task.join()) {
+                addReducedRule(reduced);
+            }
+        }
+    }
+    
+    /**
+    * Construct that takes as input regular n-expandable DPDA and
+    * converts it using given conversion.
+    * 
+    * @param regAuto NDPDA automat that will be converted
+    * @param conversion which rules are created
+    */
+    public NDPDAr(NDPDA regAuto, Conversion conversion){
+        super(regAuto.getN(), regAuto.getStartState() + regAuto.getStartPDSym().getName(), "$", regAuto.getEndStates());
+        
+        if(conversion == Conversion.ALL) {
+            convertAll(regAuto);
+            return;
+        }
+        if(!regAuto.isSettingDone()) {
+            regAuto.automatSettingDone();
+        }
+        List<ReducedRule> rules = reachableRules(regAuto);
+        if(conversion == Conversion.USEFUL) {
+            rules = usefulRules(rules, regAuto);
+        }
+        for(ReducedRule rule : rules) {
+            addReducedRule(rule);
+        }
+    }
+    
+    /**
+    * Drops dead states, merges equivalent states and duplicate rules,
+    * see Minimization.
+    * @return Minimized automaton with mapping of rule numbers
+    */
+    public Minimization minimize() {
+        if(!isSettingDone()) {
+            automatSettingDone();
+        }
+        return new Minimization(this);
+    }
+    
+    /**
+    * Rule of the reduced automaton m(q;oldStack)$ -> (p;newStack)input.
+    */
+    private static class ReducedRule {
+        final int depth;
+        final String startState;
+        final String oldStack;
+        final String specialSym;
+        final String endState;
+        final String newStack;
+        final ArrayList<String> input;
+        
+        ReducedRule(int depth, String startState, String oldStack, String specialSym, String endState, String newStack, ArrayList<String> input) {
+            this.depth = depth;
+            this.startState = startState;
+            this.oldStack = oldStack;
+            this.specialSym = specialSym;
+            this.endState = endState;
+            this.newStack = newStack;
+            this.input = input;
+        }
+        
+        String from() {
+            return startState + oldStack;
+        }
+        
+        String to() {
+            return endState + newStack;
+        }
+        
+        @Override
+        public String toString() {
+            return depth + "<" + startState + ";" + oldStack + ">" + specialSym + " -> <" + endState + ";" + newStack + ">" + input;
+        }
+    }
+    
+    /**
+    * Adds converted rule, its end state is end state if the
+    * original one was.
+    * @param rule converted rule
+    */
+    private void addReducedRule(ReducedRule rule) {
+        super.addRule(rule.depth, rule.from(), rule.specialSym, rule.to(), rule.input);
+        if(super.getEndStates().contains(rule.endState)){
+            super.addEndState(rule.to());
+        }
+    }
+    
+    /**
+    * Converts all rules of original automaton one by one.
+    * @param regAuto NDPDA automat that will be converted
+    */
+    private void convertAll(NDPDA regAuto) {
+        SimulationListener listener = getListener();
+        listener.conversionStarted(regAuto);
+        for(Rule rule : regAuto.getExpansionRules()) {
+            listener.ruleConverting(rule);
+            for(ReducedRule reduced : convertRule(rule, allU(rule, regAuto.getNonInputSymbols()), regAuto.getNonInputSymbols())) {
+                // String of the rule is created only for real listener
+                if(listener != SimulationListener.NO_OP) {
+                    listener.ruleConverted(reduced.toString());
+                }
+                addReducedRule(reduced);
+            }
+        }
+        listener.conversionFinished(this);
+    }
+    
+    /**
+    * Conversion of one rule, or its part for some of the u strings,
+    * that can run in parallel with others.
+    */
+    private class ConvertTask extends RecursiveTask<List<ReducedRule>> {
+        static final private long serialVersionUID = 1L;
+        static final private int MIN_SPLIT = 64;
+        final private Rule rule;
+        final private List<String> u;
+        final private HashSet<String> nonInputSymbols;
+        
+        ConvertTask(Rule rule, HashSet<String> nonInputSymbols) {
+            this(rule, null, nonInputSymbols);
+        }
+        
+        ConvertTask(Rule rule, List<String> u, HashSet<String> nonInputSymbols) {
+            this.rule = rule;
+            this.u = u;
+            this.nonInputSymbols = nonInputSymbols;
+        }
+        
+        @Override
+        protected List<ReducedRule> compute() {
+            List<String> allU = u == null ? allU(rule, nonInputSymbols) : u;
+            if(allU.size() < MIN_SPLIT) {
+                return convertRule(rule, allU, nonInputSymbols);
+            }
+            int half = allU.size() / 2;
+            ConvertTask first = new ConvertTask(rule, allU.subList(0, half), nonInputSymbols);
+            ConvertTask second = new ConvertTask(rule, allU.subList(half, allU.size()), nonInputSymbols);
+            second.fork();
+            List<ReducedRule> rules = new ArrayList(first.compute());
+            rules.addAll(second.join());
+            return rules;
+        }
+    }
+    
+    /**
+    * Explores encoded states reachable from the start state
+    * (startState;startPDSym) and converts only rules applicable in them.
+    * Rules that would exceed n non-input symbols are left out too.
+    * @param regAuto original automaton, setting has to be done
+    * @return Converted rules in order of exploration
+    */
+    private List<ReducedRule> reachableRules(NDPDA regAuto) {
+        List<ReducedRule> rules = new ArrayList();
+        List<String> startNonInput = new ArrayList();
+        startNonInput.add(regAuto.getStartPDSym().getName());
+        EncodedState start = new EncodedState(regAuto.getStartState(), startNonInput);
+        
+        Deque<EncodedState> toExplore = new ArrayDeque();
+        HashSet<String> explored = new HashSet();
+        toExplore.add(start);
+        explored.add(start.getName());
+        
+        while(!toExplore.isEmpty()) {
+            EncodedState encoded = toExplore.poll();
+            int size = encoded.getNonInput().size();
+            if(size > super.getN() - 1) {
+                continue;
+            }
+            for(int depth = 1; depth <= size + 1; depth++) {
+                String fromSym = encoded.nonInputAt(depth);
+                PDSymbol from;
+                String specialSym;
+                if(fromSym.equals(PDSymbol.BOTTOM_NAME)) {
+                    from = BOTTOM_SYMBOL;
+                    specialSym = BOTTOM_SYMBOL.getName();
+                }
+                else {
+                    from = regAuto.symbol(Type.NONTERMINAL, fromSym);
+                    specialSym = SPECIAL_SYMBOL.getName();
+                }
+                for(Rule rule : regAuto.applicableRules(encoded.getState(), depth, from)) {
+                    EncodedState next = encoded.apply(rule);
+                    if(next.getNonInput().size() > super.getN() - 1) {
+                        continue;
+                    }
+                    rules.add(new ReducedRule(depth, encoded.getState(), String.join("", encoded.getNonInput()), specialSym,
+                            next.getState(), String.join("", next.getNonInput()), getInput(rule.toSymbols)));
+                    if(explored.add(next.getName())) {
+                        toExplore.add(next);
+                    }
+                }
+            }
+        }
+        return rules;
+    }
+    
+    /**
+    * Leaves out rules leading to encoded states from which no accepting
+    * state (end state without non-input symbols) can be reached.
+    * @param rules converted rules
+    * @param regAuto original automaton
+    * @return Useful rules in the same order
+    */
+    private List<ReducedRule> usefulRules(List<ReducedRule> rules, NDPDA regAuto) {
+        HashMap<String, List<ReducedRule>> incoming = new HashMap();
+        Deque<String> toExplore = new ArrayDeque();
+        HashSet<String> useful = new HashSet();
+        for(ReducedRule rule : rules) {
+            incoming.computeIfAbsent(rule.to(), state -> new ArrayList<>()).add(rule);
+            if(rule.newStack.isEmpty() && regAuto.getEndStates().contains(rule.endState)
+                    && useful.add(rule.to())) {
+                toExplore.add(rule.to());
+            }
+        }
+        while(!toExplore.isEmpty()) {
+            for(ReducedRule rule : incoming.getOrDefault(toExplore.poll(), new ArrayList<>())) {
+                if(useful.add(rule.from())) {
+                    toExplore.add(rule.from());
+                }
+            }
+        }
+        List<ReducedRule> usefulRules = new ArrayList();
+        for(ReducedRule rule : rules) {
+            if(useful.contains(rule.to())) {
+                usefulRules.add(rule);
+            }
+        }
+        return usefulRules;
     }
 
     /**
@@ -52,17 +329,17 @@ public class NDPDAr extends NDPDA{
     * getNonInput() and g() equals function getInput().
     * 
     * @param rule that will be converted
+    * @param u all strings u that are used
     * @param nonInputSymbols non-input symbols of original automaton
+    * @return Converted rules
     */
-    private void convertRule(Rule rule, HashSet<String> nonInputSymbols){
-        List<String> u = new LinkedList();
+    private List<ReducedRule> convertRule(Rule rule, List<String> u, HashSet<String> nonInputSymbols){
+        List<ReducedRule> rules = new ArrayList();
         List<String> v = new LinkedList();
         
-        u.addAll(allPosNonInput(0, rule.depth - 1, "", nonInputSymbols));
         for(int i = 0; i <= super.getN() - rule.depth - 1; i++) {
             v.addAll(allPosNonInput(0, i, "", nonInputSymbols));
         }
-        out.println("Converting rule: " + rule);
         String specialSym;
         if(rule.fromSym.getName().equals("#")){
             specialSym = BOTTOM_SYMBOL.getName();
@@ -78,17 +355,21 @@ public class NDPDAr extends NDPDA{
             for(String posV : v){
                 String oldStack = posU + rule.fromSym.getName() + posV;
                 String newStack = posU + nonInput + posV;
-                out.print("\t" + rule.depth + "<" + rule.startState + ";" + oldStack + ">" + specialSym + " -> ");
-                out.println("<" + rule.endState + ";" + newStack + ">" + input);
-
-                super.addRule(rule.depth, rule.startState + oldStack , specialSym,  rule.endState + newStack, input);
-                
-                if(super.getEndStates().contains(rule.endState)){
-                    super.addEndState(rule.endState + newStack);
-                }
+                rules.add(new ReducedRule(rule.depth, rule.startState, oldStack, specialSym, rule.endState, newStack, input));
             }
         }
-        
+        return rules;
+    }
+    
+    /**
+    * All strings u of non-input symbols that are above the expanded
+    * symbol of the rule.
+    * @param rule that will be converted
+    * @param nonInputSymbols non-input symbols of original automaton
+    * @return All strings u
+    */
+    private List<String> allU(Rule rule, HashSet<String> nonInputSymbols) {
+        return new ArrayList<>(allPosNonInput(0, rule.depth - 1, "", nonInputSymbols));
     }
     
     /**
@@ -118,7 +399,7 @@ public class NDPDAr extends NDPDA{
     * @param symbols list of symbols
     * @return String of non-input symbols
     */
-    private String getNonInput(List<PDSymbol> symbols) {
+    private String getNonInput(PDSymbol[] symbols) {
         StringBuilder sb = new StringBuilder();
         for(PDSymbol sym : symbols){
             if(sym.getType() == Type.NONTERMINAL) {
@@ -134,7 +415,7 @@ public class NDPDAr extends NDPDA{
     * @param symbols list of symbols
     * @return String of input symbols
     */
-    private ArrayList<String> getInput(List<PDSymbol> symbols) {
+    private ArrayList<String> getInput(PDSymbol[] symbols) {
         ArrayList<String> al = new ArrayList();
         for(PDSymbol sym : symbols){
             if(sym.getType() == Type.NONTERMINAL) {
@@ -5,25 +5,31 @@ package ndpdar;
  * symbol and if it's either terminal, nonterminal or 
  * speacial bottom symbol.
  * 
+ * Symbols are immutable, so one instance of every symbol can be shared
+ * by all rules of the automaton, see NDPDA.symbol(). Rules of converted
+ * automata repeat the same few symbols many times.
+ * 
  * @author lucie dvorakova
  */
 
 public class PDSymbol {
     public enum Type {TERMINAL, NONTERMINAL, BOTTOM}
+    public static final String BOTTOM_NAME = "#";
+    public static final PDSymbol BOTTOM = new PDSymbol(Type.BOTTOM, null);
     
-    private Type type = null;
-    private String name = null;
+    final private Type type;
+    final private String name;
     
     public PDSymbol(Type type, String name) {
         this.type = type;
         if(name == null){
-            this.name = "#";
+            this.name = BOTTOM_NAME;
         }
         else {
             this.name = name;
         }
     }
-
+    
     public Type getType() {
         return type;
     }
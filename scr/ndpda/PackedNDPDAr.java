@@ -0,0 +1,353 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Reduced automaton (NDPDAr) simulated directly on the rules of the original
+ * automaton, no rule of the reduced automaton is created. Pushdown keeps
+ * only bottom symbol #, special symbol $ and input symbols, encoded state
+ * (q;uAz) is packed to one long value: id of the state q in the lowest bits,
+ * then ids of non-input symbols of uAz (top-most first) in fixed number
+ * of bits each, empty slots are 0. Applying rule of the original automaton
+ * changes the encoded state by f(v) and pushes g(v), both are computed
+ * from the compiled rule.
+ *
+ * Rules are numbered as in NDPDAr created by NDPDAr(NDPDA), numbers are
+ * computed by ReducedRuleNumbering when the rule is used. So the memory
+ * needed is the one of the original automaton, while found rule sequences
+ * can be replayed on NDPDAr and the other way round.
+ *
+ * @author luciedvorakova
+ */
+public class PackedNDPDAr {
+    static final private int SPECIAL = 1; // $ on the pushdown, # keeps id 0
+
+    final private CompiledNDPDA automaton;
+    final private ReducedRuleNumbering numbering;
+    final private Tokenizer tokenizer;
+    final private int n;
+
+    final private int stateBits;
+    final private int symBits;
+    final private long stateMask;
+    final private int symMask;
+    final private long start;
+
+    final private int[] ordinals; // non-input symbol id -> ordinal for numbering
+    final private int[][] reducedTo; // g(v), non-input symbols replaced by $
+    final private int[][] encodedTo; // f(v), non-input symbols except bottom
+
+    /**
+    * @param regAuto original automaton
+    * @throws IllegalArgumentException if encoded state doesn't fit to long
+    */
+    public PackedNDPDAr(NDPDA regAuto) {
+        this.automaton = regAuto.compile();
+        this.numbering = new ReducedRuleNumbering(regAuto);
+        this.tokenizer = automaton.getTokenizer();
+        this.n = automaton.getN();
+
+        int numOfNonInputSym = automaton.getNumOfNonInputSym();
+        stateBits = bits(automaton.getStates().size() - 1);
+        symBits = bits(numOfNonInputSym - 1);
+        if(stateBits + (long) Math.max(n - 1, 0) * symBits > Long.SIZE) {
+            throw new IllegalArgumentException("Encoded state doesn't fit to " + Long.SIZE + " bits.");
+        }
+        stateMask = (1L << stateBits) - 1;
+        symMask = (1 << symBits) - 1;
+        start = n > 1 ? with(automaton.getStartState(), 0, automaton.getStartSym()) : automaton.getStartState();
+
+        ordinals = new int[numOfNonInputSym];
+        for(int sym = 0; sym < numOfNonInputSym; sym++) {
+            ordinals[sym] = numbering.ordinal(automaton.getSymbols().name(sym));
+        }
+        int numOfRules = automaton.getNumOfRules();
+        reducedTo = new int[numOfRules][];
+        encodedTo = new int[numOfRules][];
+        for(int r = 0; r < numOfRules; r++) {
+            int[] to = automaton.getRuleTo(r);
+            reducedTo[r] = new int[to.length];
+            int[] nonInput = new int[to.length];
+            int size = 0;
+            for(int i = 0; i < to.length; i++) {
+                if(to[i] == CompiledNDPDA.BOTTOM) {
+                    reducedTo[r][i] = CompiledNDPDA.BOTTOM;
+                }
+                else if(to[i] < numOfNonInputSym) {
+                    reducedTo[r][i] = SPECIAL;
+                    nonInput[size++] = to[i];
+                }
+                else {
+                    reducedTo[r][i] = to[i];
+                }
+            }
+            encodedTo[r] = Arrays.copyOf(nonInput, size);
+        }
+    }
+
+    /**
+    * Top-down parsing using given rules of the reduced automaton.
+    * @param input String of input character
+    * @param rulesNum numbers of rules of NDPDAr in order of use
+    * @return Returns true if string is accepted by automaton,
+    *          else returns false.
+    */
+    public Boolean simulate(String input, List<Integer> rulesNum) {
+        int[] inputArray = tokenizer.tokenize(input);
+        CompiledPD pd = new CompiledPD(SPECIAL + 1, n, inputArray.length + 2);
+        pd.reset(SPECIAL);
+        long encoded = start;
+        int length = 0;
+        for(int number : rulesNum) {
+            ReducedRuleNumbering.Position position = numbering.position(number);
+            if(position == null) {
+                return false;
+            }
+            int r = position.getRule();
+            int depth = automaton.getRuleDepth(r);
+            int size = sizeOf(encoded);
+            int reducedFrom = depth <= size ? SPECIAL : CompiledNDPDA.BOTTOM;
+            if(automaton.getRuleStart(r) != stateOf(encoded) || !matches(encoded, size, r, position)
+                    || !fits(size, r) || depth > pd.numOfNonInput() || pd.nonInputAt(depth) != reducedFrom
+                    || pd.numOfNonInput() + automaton.getRuleNonInput(r) - 1 > n) {
+                return false;
+            }
+            pd.expand(depth, reducedTo[r]);
+            length += automaton.getRuleLength(r);
+            encoded = apply(encoded, size, r);
+        }
+        return automaton.isAccepting(pd, stateOf(encoded), length, inputArray)
+                && automaton.matchesPrefix(pd, inputArray);
+    }
+
+    /**
+    * Searches for the sequence of rules of the reduced automaton that
+    * leads to acceptance of the input. Search is depth-first, every
+    * configuration (encoded state and pushdown) is entered only once.
+    * Visited configurations are saved as hashes, so the input can be
+    * rejected because of hash collision (very unlikely, see
+    * ConfigurationCache).
+    * @param input String of input character
+    * @return List of numbers of rules of NDPDAr that leads to acceptance,
+    *          null if string isn't accepted by automaton or the search
+    *          was cut by hash collision.
+    */
+    public List<Integer> simulate(String input) {
+        int[] inputArray = tokenizer.tokenize(input);
+        CompiledPD pd = new CompiledPD(SPECIAL + 1, n, inputArray.length + 2);
+        pd.reset(SPECIAL);
+        LongSet visited = new LongSet();
+        visited.add(configurationKey(pd, start));
+        if(automaton.isAccepting(pd, stateOf(start), 0, inputArray)) {
+            return new LinkedList();
+        }
+
+        int[] nonInput = new int[n];
+        long[] frameState = new long[16];
+        int[] frameRule = new int[16];
+        int[] frameNumber = new int[16];
+        int[] framePos = new int[16];
+        int[] frameFrom = new int[16];
+        int[] frameDepth = new int[16];
+        int[] frameNext = new int[16];
+        int top = 0;
+        frameState[0] = start;
+        frameRule[0] = -1;
+        frameDepth[0] = 1;
+        int length = 0;
+        while(top >= 0) {
+            long encoded = frameState[top];
+            int size = sizeOf(encoded);
+            boolean advanced = false;
+            while(!advanced && frameDepth[top] <= size + 1) {
+                int depth = frameDepth[top];
+                int from = depth <= size ? symbolAt(encoded, depth - 1) : CompiledNDPDA.BOTTOM;
+                int[] rules = automaton.applicableRules(stateOf(encoded), depth, from);
+                if(frameNext[top] >= rules.length) {
+                    frameDepth[top]++;
+                    frameNext[top] = 0;
+                    continue;
+                }
+                int r = rules[frameNext[top]++];
+                int reducedFrom = depth <= size ? SPECIAL : CompiledNDPDA.BOTTOM;
+                if(!fits(size, r) || depth > pd.numOfNonInput() || pd.nonInputAt(depth) != reducedFrom
+                        || pd.numOfNonInput() + automaton.getRuleNonInput(r) - 1 > n) {
+                    continue;
+                }
+                long next = apply(encoded, size, r);
+                int pos = pd.expand(depth, reducedTo[r]);
+                length += automaton.getRuleLength(r);
+                if(length <= inputArray.length && automaton.matchesPrefix(pd, inputArray)
+                        && visited.add(configurationKey(pd, next))) {
+                    if(++top == frameRule.length) {
+                        frameState = Arrays.copyOf(frameState, top * 2);
+                        frameRule = Arrays.copyOf(frameRule, top * 2);
+                        frameNumber = Arrays.copyOf(frameNumber, top * 2);
+                        framePos = Arrays.copyOf(framePos, top * 2);
+                        frameFrom = Arrays.copyOf(frameFrom, top * 2);
+                        frameDepth = Arrays.copyOf(frameDepth, top * 2);
+                        frameNext = Arrays.copyOf(frameNext, top * 2);
+                    }
+                    for(int i = 0; i < size; i++) {
+                        nonInput[i] = ordinals[symbolAt(encoded, i)];
+                    }
+                    frameState[top] = next;
+                    frameRule[top] = r;
+                    frameNumber[top] = numbering.number(r, nonInput, size, depth);
+                    framePos[top] = pos;
+                    frameFrom[top] = reducedFrom;
+                    frameDepth[top] = 1;
+                    frameNext[top] = 0;
+                    if(automaton.isAccepting(pd, stateOf(next), length, inputArray)) {
+                        LinkedList<Integer> used = new LinkedList();
+                        for(int f = 1; f <= top; f++) {
+                            used.add(frameNumber[f]);
+                        }
+                        return used;
+                    }
+                    advanced = true;
+                }
+                else {
+                    pd.undo(pos, depth, reducedTo[r], reducedFrom);
+                    length -= automaton.getRuleLength(r);
+                }
+            }
+            if(!advanced) {
+                // All rules were tried, return to previous configuration
+                int r = frameRule[top];
+                if(r >= 0) {
+                    pd.undo(framePos[top], automaton.getRuleDepth(r), reducedTo[r], frameFrom[top]);
+                    length -= automaton.getRuleLength(r);
+                }
+                top--;
+            }
+        }
+        return null;
+    }
+
+    /**
+    * Encoded state after applying the rule, non-input symbol at depth
+    * of the rule is replaced by f(v). Rule expanding bottom symbol only
+    * adds f(v) below the other symbols.
+    * @param encoded current encoded state
+    * @param size number of non-input symbols in encoded state
+    * @param r id of the rule, fits() has to be true
+    * @return New encoded state
+    */
+    long apply(long encoded, int size, int r) {
+        int depth = automaton.getRuleDepth(r);
+        int[] to = encodedTo[r];
+        int removed = depth <= size ? 1 : 0;
+        long result = automaton.getRuleEnd(r);
+        for(int i = 0; i < depth - 1; i++) {
+            result = with(result, i, symbolAt(encoded, i));
+        }
+        for(int i = 0; i < to.length; i++) {
+            result = with(result, depth - 1 + i, to[i]);
+        }
+        for(int i = depth - 1 + removed; i < size; i++) {
+            result = with(result, i - removed + to.length, symbolAt(encoded, i));
+        }
+        return result;
+    }
+
+    /**
+    * Encoded state after applying the rule has at most n - 1
+    * non-input symbols, as in NDPDAr.
+    */
+    private boolean fits(int size, int r) {
+        int removed = automaton.getRuleDepth(r) <= size ? 1 : 0;
+        return size - removed + encodedTo[r].length <= n - 1;
+    }
+
+    /**
+    * Is encoded state the one the rule of NDPDAr is made for.
+    */
+    private boolean matches(long encoded, int size, int r, ReducedRuleNumbering.Position position) {
+        int[] u = position.getU();
+        int[] z = position.getZ();
+        int from = automaton.getRuleFrom(r);
+        int expanded = from == CompiledNDPDA.BOTTOM ? 0 : 1;
+        if(size != u.length + expanded + z.length) {
+            return false;
+        }
+        if(expanded == 1 && symbolAt(encoded, u.length) != from) {
+            return false;
+        }
+        for(int i = 0; i < u.length; i++) {
+            if(ordinals[symbolAt(encoded, i)] != u[i]) {
+                return false;
+            }
+        }
+        for(int i = 0; i < z.length; i++) {
+            if(ordinals[symbolAt(encoded, u.length + expanded + i)] != z[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    * Unpacks encoded state, used when the state is shown.
+    * @param encoded packed encoded state
+    * @return Encoded state with names of the state and symbols
+    */
+    public EncodedState decode(long encoded) {
+        List<String> nonInput = new ArrayList();
+        for(int i = 0; i < sizeOf(encoded); i++) {
+            nonInput.add(automaton.getSymbols().name(symbolAt(encoded, i)));
+        }
+        return new EncodedState(automaton.getStates().name(stateOf(encoded)), nonInput);
+    }
+
+    int stateOf(long encoded) {
+        return (int) (encoded & stateMask);
+    }
+
+    /**
+    * Id of non-input symbol in encoded state.
+    * @param encoded packed encoded state
+    * @param i position of the symbol, top-most is 0
+    * @return Id of the symbol, 0 if there is no such symbol
+    */
+    int symbolAt(long encoded, int i) {
+        return (int) (encoded >>> (stateBits + i * symBits)) & symMask;
+    }
+
+    int sizeOf(long encoded) {
+        int size = 0;
+        while(size < n - 1 && symbolAt(encoded, size) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private long with(long encoded, int i, int sym) {
+        return encoded | ((long) sym << (stateBits + i * symBits));
+    }
+
+    private static long configurationKey(CompiledPD pd, long encoded) {
+        return pd.hash() ^ CompiledPD.mix(~encoded);
+    }
+
+    /**
+    * Number of bits needed for values 0 .. max.
+    */
+    private static int bits(int max) {
+        return max <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(max);
+    }
+
+    /*
+    *   GETTERS
+    */
+    public long getStart() {
+        return start;
+    }
+
+    public ReducedRuleNumbering getNumbering() {
+        return numbering;
+    }
+}
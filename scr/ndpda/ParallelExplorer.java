@@ -0,0 +1,239 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Search for accepting rule sequence of compiled automaton that explores
+ * branches in parallel. Every task searches depth-first on its own
+ * CompiledPD, when other threads of the pool have nothing to do, branch
+ * is given to new task with a copy of the stack (tasks never share
+ * a stack). Once any branch accepts, all tasks stop.
+ *
+ * Configurations are marked as visited when they are entered first time,
+ * visited configurations are saved in ConcurrentConfigurationCache
+ * shared by all tasks, its size is the cache size of the automaton.
+ * Configuration removed from the cache can be explored again, every task
+ * keeps configurations on its path (from the start of the search) so it
+ * never enters the same configuration twice on one path. Only hashes
+ * of configurations are saved, so the input can be rejected because
+ * of hash collision (very unlikely, see ConfigurationCache).
+ *
+ * @author luciedvorakova
+ */
+public class ParallelExplorer {
+    final private CompiledNDPDA automaton;
+    final private ForkJoinPool pool;
+
+    public ParallelExplorer(CompiledNDPDA automaton) {
+        this(automaton, ForkJoinPool.commonPool());
+    }
+
+    public ParallelExplorer(CompiledNDPDA automaton, ForkJoinPool pool) {
+        this.automaton = automaton;
+        this.pool = pool;
+    }
+
+    /**
+    * Searches for the sequence of rules that leads to acceptance
+    * of the input, input is split to symbols by tokenizer of the automaton.
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> simulate(String input) {
+        return simulate(automaton.getTokenizer().tokenize(input));
+    }
+
+    /**
+    * Searches for the sequence of rules that leads to acceptance
+    * of the input.
+    * @param input ids of input symbols
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> simulate(int[] input) {
+        Search search = new Search(input, new ConcurrentConfigurationCache(automaton.getCacheSize()));
+        CompiledPD pd = new CompiledPD(automaton.getNumOfNonInputSym(), automaton.getN(), input.length + 2);
+        pd.reset(automaton.getStartSym());
+        int state = automaton.getStartState();
+        long key = automaton.configurationKey(pd, state);
+        search.visited.add(key);
+        if(automaton.isAccepting(pd, state, 0, input)) {
+            return new LinkedList();
+        }
+        LongSet path = new LongSet();
+        path.add(key);
+        pool.invoke(new Branch(search, pd, state, 0, null, path));
+
+        RulePath found = search.result.get();
+        if(found == null) {
+            return null;
+        }
+        LinkedList<Integer> rules = new LinkedList();
+        for(RulePath p = found; p != null; p = p.parent) {
+            rules.addFirst(p.rule + 1);
+        }
+        return rules;
+    }
+
+    /**
+    * Data shared by all tasks of one search.
+    */
+    static private class Search {
+        final int[] input;
+        final ConcurrentConfigurationCache visited;
+        final AtomicReference<RulePath> result = new AtomicReference();
+
+        Search(int[] input, ConcurrentConfigurationCache visited) {
+            this.input = input;
+            this.visited = visited;
+        }
+    }
+
+    /**
+    * Immutable list of applied rules, shared by branches.
+    */
+    static private class RulePath {
+        final RulePath parent;
+        final int rule;
+
+        RulePath(RulePath parent, int rule) {
+            this.parent = parent;
+            this.rule = rule;
+        }
+    }
+
+    /**
+    * Task exploring all configurations reachable from one configuration.
+    */
+    private class Branch extends RecursiveAction {
+        static final private long serialVersionUID = 1L;
+        final private Search search;
+        final private CompiledPD pd;
+        final private int startState;
+        final private int startLength;
+        final private RulePath path;
+        final private LongSet configurations; // on the path, owned by this task
+
+        Branch(Search search, CompiledPD pd, int state, int length, RulePath path, LongSet configurations) {
+            this.search = search;
+            this.pd = pd;
+            this.startState = state;
+            this.startLength = length;
+            this.path = path;
+            this.configurations = configurations;
+        }
+
+        @Override
+        protected void compute() {
+            CompiledNDPDA a = automaton;
+            int[] input = search.input;
+            List<Branch> forked = new ArrayList();
+            int state = startState;
+            int length = startLength;
+
+            int[] frameRule = new int[16];
+            int[] framePos = new int[16];
+            int[] frameDepth = new int[16];
+            int[] frameNext = new int[16];
+            long[] frameKey = new long[16];
+            int top = 0;
+            frameRule[0] = -1;
+            frameDepth[0] = 1;
+
+            explore:
+            while(top >= 0 && search.result.get() == null) {
+                boolean advanced = false;
+                while(!advanced && frameDepth[top] <= pd.numOfNonInput()) {
+                    int depth = frameDepth[top];
+                    int[] rules = a.applicableRules(state, depth, pd.nonInputAt(depth));
+                    if(frameNext[top] >= rules.length) {
+                        frameDepth[top]++;
+                        frameNext[top] = 0;
+                        continue;
+                    }
+                    int r = rules[frameNext[top]++];
+                    if(pd.numOfNonInput() + a.getRuleNonInput(r) - 1 > a.getN()) {
+                        continue;
+                    }
+                    int pos = pd.expand(depth, a.getRuleTo(r));
+                    state = a.getRuleEnd(r);
+                    length += a.getRuleLength(r);
+                    long key = a.configurationKey(pd, state);
+                    boolean enter = length <= input.length && a.matchesPrefix(pd, input)
+                            && !configurations.contains(key) && search.visited.add(key);
+                    if(enter && a.isAccepting(pd, state, length, input)) {
+                        search.result.compareAndSet(null, pathOf(frameRule, top, r));
+                        break explore;
+                    }
+                    if(enter && getSurplusQueuedTaskCount() < 2) {
+                        // Other threads can take the branch
+                        LongSet branchConfigurations = configurations.copy();
+                        branchConfigurations.add(key);
+                        Branch branch = new Branch(search, pd.copy(), state, length,
+                                pathOf(frameRule, top, r), branchConfigurations);
+                        branch.fork();
+                        forked.add(branch);
+                        enter = false;
+                    }
+                    if(enter) {
+                        if(++top == frameRule.length) {
+                            frameRule = Arrays.copyOf(frameRule, top * 2);
+                            framePos = Arrays.copyOf(framePos, top * 2);
+                            frameDepth = Arrays.copyOf(frameDepth, top * 2);
+                            frameNext = Arrays.copyOf(frameNext, top * 2);
+                            frameKey = Arrays.copyOf(frameKey, top * 2);
+                        }
+                        frameRule[top] = r;
+                        framePos[top] = pos;
+                        frameDepth[top] = 1;
+                        frameNext[top] = 0;
+                        frameKey[top] = key;
+                        configurations.add(key);
+                        advanced = true;
+                    }
+                    else {
+                        pd.undo(pos, depth, a.getRuleTo(r), a.getRuleFrom(r));
+                        state = a.getRuleStart(r);
+                        length -= a.getRuleLength(r);
+                    }
+                }
+                if(!advanced) {
+                    int r = frameRule[top];
+                    if(r >= 0) {
+                        configurations.remove(frameKey[top]);
+                        pd.undo(framePos[top], a.getRuleDepth(r), a.getRuleTo(r), a.getRuleFrom(r));
+                        state = a.getRuleStart(r);
+                        length -= a.getRuleLength(r);
+                    }
+                    top--;
+                }
+            }
+            // When result is found, branches that didn't start are cancelled,
+            // running ones stop soon, no branch outlives the search
+            boolean found = search.result.get() != null;
+            for(Branch branch : forked) {
+                if(!(found && branch.cancel(false))) {
+                    branch.join();
+                }
+            }
+        }
+
+        /**
+        * Rules from the start of the search, rules of this task and given rule.
+        */
+        private RulePath pathOf(int[] frameRule, int top, int rule) {
+            RulePath p = path;
+            for(int f = 1; f <= top; f++) {
+                p = new RulePath(p, frameRule[f]);
+            }
+            return new RulePath(p, rule);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ndpdar;
+
+import java.util.HashMap;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Numbers of rules of NDPDAr created by eager conversion. The conversion
+ * goes through rules of original automaton and for each creates rules
+ * for all u (of length depth - 1) and then all v (of length
+ * 0 .. n - depth - 1), strings are ordered as created by
+ * NDPDAr.allPosNonInput(). The number is computed from the rule of the
+ * original automaton and non-input symbols of the encoded state, and
+ * the other way round, without creating the converted rules.
+ *
+ * Non-input symbols are given by their ordinal, position in
+ * getNonInputSymbols() of original automaton.
+ *
+ * @author luciedvorakova
+ */
+public class ReducedRuleNumbering {
+    final private int n;
+    // Ordering of non-input symbols used by the eager conversion
+    final private HashMap<String, Integer> ordinal = new HashMap();
+    final private String[] symbols;
+    final private HashMap<Rule, Integer> sourceIndex = new HashMap();
+    final private int[] ruleDepth;
+    final private long[] offset;
+
+    /**
+    * @param regAuto original automaton, setting has to be done
+    */
+    public ReducedRuleNumbering(NDPDA regAuto) {
+        this.n = regAuto.getN();
+        for(String sym : regAuto.getNonInputSymbols()) {
+            ordinal.put(sym, ordinal.size());
+        }
+        symbols = new String[ordinal.size()];
+        for(String sym : ordinal.keySet()) {
+            symbols[ordinal.get(sym)] = sym;
+        }
+        List<Rule> rules = regAuto.getExpansionRules();
+        ruleDepth = new int[rules.size()];
+        offset = new long[rules.size() + 1];
+        for(int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            sourceIndex.put(rule, i);
+            ruleDepth[i] = rule.depth;
+            offset[i + 1] = offset[i] + power(rule.depth - 1) * numOfV(rule.depth);
+        }
+    }
+
+    /**
+    * Rule of converted automaton with given number.
+    */
+    public static class Position {
+        final private int rule;
+        final private int[] u;
+        final private int[] z;
+
+        Position(int rule, int[] u, int[] z) {
+            this.rule = rule;
+            this.u = u;
+            this.z = z;
+        }
+
+        /**
+        * @return Index of the rule in original automaton
+        */
+        public int getRule() {
+            return rule;
+        }
+
+        /**
+        * @return Ordinals of non-input symbols above the expanded one
+        */
+        public int[] getU() {
+            return u;
+        }
+
+        /**
+        * @return Ordinals of non-input symbols below the expanded one
+        */
+        public int[] getZ() {
+            return z;
+        }
+    }
+
+    /**
+    * Number of the rule in NDPDAr created by eager conversion.
+    * @param regRule rule of original automaton
+    * @param nonInput non-input symbols in encoded state (uAz)
+    * @param depth depth of the rule
+    * @return Number of rule, -1 if it doesn't fit to int
+    */
+    public int number(Rule regRule, List<String> nonInput, int depth) {
+        int[] ordinals = new int[nonInput.size()];
+        for(int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = ordinal(nonInput.get(i));
+        }
+        return number(sourceIndex.get(regRule), ordinals, ordinals.length, depth);
+    }
+
+    /**
+    * Number of the rule in NDPDAr created by eager conversion.
+    * @param rule index of rule of original automaton
+    * @param nonInput ordinals of non-input symbols in encoded state (uAz)
+    * @param size number of non-input symbols in encoded state
+    * @param depth depth of the rule
+    * @return Number of rule, -1 if it doesn't fit to int
+    */
+    public int number(int rule, int[] nonInput, int size, int depth) {
+        long u = index(nonInput, 0, depth - 1);
+        int lengthOfZ = Math.max(size - depth, 0);
+        long z = 0;
+        for(int i = 0; i < lengthOfZ; i++) {
+            z += power(i);
+        }
+        z += index(nonInput, depth, size);
+        long number = offset[rule] + u * numOfV(depth) + z + 1;
+        return number > Integer.MAX_VALUE || u < 0 || z < 0 ? -1 : (int) number;
+    }
+
+    /**
+    * Rule of original automaton and strings u and z of the rule
+    * with given number, inverse of number().
+    * @param number number of rule of converted automaton
+    * @return Position of the rule, null if there is no such rule
+    */
+    public Position position(long number) {
+        long x = number - 1;
+        if(x < 0 || x >= offset[offset.length - 1]) {
+            return null;
+        }
+        // Last rule with offset not bigger than x
+        int low = 0;
+        int high = ruleDepth.length - 1;
+        while(low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if(offset[mid] <= x) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        int depth = ruleDepth[low];
+        long rest = x - offset[low];
+        long numOfV = numOfV(depth);
+        int[] u = digits(rest / numOfV, depth - 1);
+        long z = rest % numOfV;
+        int lengthOfZ = 0;
+        while(z >= power(lengthOfZ)) {
+            z -= power(lengthOfZ);
+            lengthOfZ++;
+        }
+        return new Position(low, u, digits(z, lengthOfZ));
+    }
+
+    /**
+    * Ordinal of non-input symbol.
+    * @param sym name of the symbol
+    * @return Ordinal, -1 if symbol isn't non-input symbol of original automaton
+    */
+    public int ordinal(String sym) {
+        Integer ord = ordinal.get(sym);
+        return ord == null ? -1 : ord;
+    }
+
+    /**
+    * Non-input symbol with given ordinal.
+    * @param ordinal ordinal of the symbol
+    * @return Name of the symbol
+    */
+    public String symbol(int ordinal) {
+        return symbols[ordinal];
+    }
+
+    /**
+    * Position of string of non-input symbols among all strings of the
+    * same length.
+    */
+    private long index(int[] nonInput, int from, int to) {
+        long index = 0;
+        for(int i = from; i < to; i++) {
+            if(nonInput[i] < 0) {
+                return -1;
+            }
+            index = index * symbols.length + nonInput[i];
+        }
+        return index;
+    }
+
+    /**
+    * String of non-input symbols with given index, inverse of index().
+    */
+    private int[] digits(long index, int length) {
+        int[] digits = new int[length];
+        for(int i = length - 1; i >= 0; i--) {
+            digits[i] = (int) (index % symbols.length);
+            index /= symbols.length;
+        }
+        return digits;
+    }
+
+    /**
+    * Number of all strings v for the rule with given depth.
+    */
+    private long numOfV(int depth) {
+        long count = 0;
+        for(int i = 0; i <= n - depth - 1; i++) {
+            count += power(i);
+        }
+        return count;
+    }
+
+    private long power(int exp) {
+        long result = 1;
+        for(int i = 0; i < exp; i++) {
+            result *= symbols.length;
+        }
+        return result;
+    }
+}
@@ -57,6 +57,45 @@ public class RunExample {
     }
     
     private static void runExample3() {
+        NDPDA automaton = createExample3();
+        TextTracer tracer = new TextTracer();
+        
+        // convert to NDPDAr automaton
+        NDPDAr reducedAutomaton = new NDPDAr(automaton, tracer);
+        tracer.flush();
+        reducedAutomaton.automatSettingDone();
+        out.println(reducedAutomaton.toString());
+        
+        List<Integer> rulesNum = EXAMPLE3_RULES;
+        String input = EXAMPLE3_INPUT;
+        
+         //Run simulation
+        if(reducedAutomaton.simulate(input, rulesNum)){
+            out.println("=> Success: Automaton M does accept given input.\n");
+        }
+        else {
+            out.println("=> Fail: Automaton M doesn't accept given input!\n");
+        }
+        
+    }
+    
+    /**
+    * Rules of NDPDAr converted from example 3 automaton accepting EXAMPLE3_INPUT.
+    */
+    static final List<Integer> EXAMPLE3_RULES = Arrays.asList(1, 346, 
+                                               604, 1151, 1539, 1668, 2056, 2185, 2357, 863, //aaa
+                                               2671, 2843
+                                               ); 
+    static final String EXAMPLE3_INPUT = "var aaa;       "
+                     + "func {         "
+                     + "    aaa = val; "
+                     + "}              ";
+    
+    /**
+    * Automaton from example 3, setting is done.
+    * @return Automaton checking declaration of variable made of letter a
+    */
+    static NDPDA createExample3() {
         HashSet<String> endStates = new HashSet();
         endStates.add("f");
         
@@ -88,31 +127,49 @@ public class RunExample {
         automaton.addRule(1,"g", "V", "f", new ArrayList<>(Arrays.asList()));
 
         automaton.automatSettingDone();
+        return automaton;
+    }
+    
+    private static void runExample2() {
+        NDPDA automaton = createExample2();
+        automaton.setListener(new TextTracer());
+        out.println(automaton.toString());
         
-        // convert to NDPDAr automaton
-        NDPDAr reducedAutomaton = new NDPDAr(automaton);
-        reducedAutomaton.automatSettingDone();
-        out.println(reducedAutomaton.toString());
-        
-        List<Integer> rulesNum = Arrays.asList(1, 346, 
-                                               604, 1151, 1539, 1668, 2056, 2185, 2357, 863, //aaa
-                                               2671, 2843
-                                               ); 
-        String input = "var aaa;       "
-                     + "func {         "
-                     + "    aaa = val; "
-                     + "}              ";
+        List<Integer> rulesNum = EXAMPLE2_RULES;
+        String input = EXAMPLE2_INPUT;
         
-         //Run simulation
-        if(reducedAutomaton.simulate(input, rulesNum)){
+        //Run simulation
+        if(automaton.simulate(input, rulesNum)){
             out.println("=> Success: Automaton M does accept given input.\n");
         }
         else {
             out.println("=> Fail: Automaton M doesn't accept given input!\n");
         }
         
-    }
-    private static void runExample2() {
+    }   
+    
+    /**
+    * Rules of example 2 automaton accepting EXAMPLE2_INPUT.
+    */
+    static final List<Integer> EXAMPLE2_RULES = Arrays.asList(1, 2, 
+                                               3, 23, 24, 91, 92, 45, 46, 4, //dog
+                                               3, 17, 18, 7, 8, 123, 124, 4, //cat
+                                               3, 17, 18, 91, 92, 141, 142, 4, //bird
+                                               161, 162);
+    static final String EXAMPLE2_INPUT = "var dog;       "
+                     + "var cat;       "
+                     + "var cow;       "
+                     + "func {         "
+                     + "    dog = val; "
+                     + "    cat = val; "
+                     + "    cow = val; "
+                     + "}              ";
+    
+    /**
+    * Automaton from example 2, setting is done.
+    * @return Automaton checking declaration of variables
+    */
+    static NDPDA createExample2() {
         HashSet<String> endStates = new HashSet();
         endStates.add("f");
         
@@ -145,49 +202,11 @@ public class RunExample {
         automaton.addRule(1,"g", "V", "f", new ArrayList<>(Arrays.asList()));
 
         automaton.automatSettingDone();
-        out.println(automaton.toString());
-        
-        List<Integer> rulesNum = Arrays.asList(1, 2, 
-                                               3, 23, 24, 91, 92, 45, 46, 4, //dog
-                                               3, 17, 18, 7, 8, 123, 124, 4, //cat
-                                               3, 17, 18, 91, 92, 141, 142, 4, //bird
-                                               161, 162);
-
-        String input = "var dog;       "
-                     + "var cat;       "
-                     + "var cow;       "
-                     + "func {         "
-                     + "    dog = val; "
-                     + "    cat = val; "
-                     + "    cow = val; "
-                     + "}              ";
-        
-        //Run simulation
-        if(automaton.simulate(input, rulesNum)){
-            out.println("=> Success: Automaton M does accept given input.\n");
-        }
-        else {
-            out.println("=> Fail: Automaton M doesn't accept given input!\n");
-        }
-        
-    }   
-    
+        return automaton;
+    }
 
     private static void runExample1() {
-        HashSet<String> endStates = new HashSet();
-        endStates.add("f");
-        
-        // Create automaton
-        NDPDA automaton = new NDPDA(3, "s", "S", endStates);
-        
-        // Expansion rules
-        automaton.addRule("s", "S", "q", new ArrayList<>(Arrays.asList("A","A")));
-        automaton.addRule("q", "A", "f", new ArrayList<>(Arrays.asList("a","b")));
-        automaton.addRule("f", "A", "f", new ArrayList<>(Arrays.asList("c")));
-        automaton.addRule("q", "A", "p", new ArrayList<>(Arrays.asList("a","A","b")));
-        automaton.addRule(2,"p", "A", "q", new ArrayList<>(Arrays.asList("A","c")));
-
-        automaton.automatSettingDone();
+        NDPDA automaton = createExample1();
         
         // Set of rules that will be used (in correct order)
         /*List<Integer> rulesNum = Arrays.asList(1, 4, 5, 2, 3);
@@ -203,18 +222,57 @@ public class RunExample {
         }*/
         
         // Set of rules that will be used in this order
-        List<Integer> rulesNum = Arrays.asList(1, 11, 13, 5, 7);
+        List<Integer> rulesNum = EXAMPLE1_RULES;
         
         // Convert NDPDA automaton to NDPDAr
-        NDPDAr reducedAutomaton = new NDPDAr(automaton);
+        TextTracer tracer = new TextTracer();
+        NDPDAr reducedAutomaton = new NDPDAr(automaton, tracer);
+        tracer.flush();
         out.println(reducedAutomaton.toString());
         
         // Run simulation
-        if(reducedAutomaton.simulate("aabbcc", rulesNum)){
+        if(reducedAutomaton.simulate(EXAMPLE1_INPUT, rulesNum)){
             out.println("=> Success: Automaton M does accept given input.\n");
         }
         else {
             out.println("=> Fail: Automaton M doesn't accept given input!\n");
         }
+
+        // Run simulation without given rules, automaton finds them itself
+        List<Integer> foundRules = reducedAutomaton.simulate("aaabbbccc");
+        if(foundRules != null){
+            out.println("=> Success: Automaton M does accept given input using rules " + foundRules + ".\n");
+        }
+        else {
+            out.println("=> Fail: Automaton M doesn't accept given input!\n");
+        }
+    }
+
+    /**
+    * Rules of NDPDAr converted from example 1 automaton accepting EXAMPLE1_INPUT.
+    */
+    static final List<Integer> EXAMPLE1_RULES = Arrays.asList(1, 11, 13, 5, 7);
+    static final String EXAMPLE1_INPUT = "aabbcc";
+    
+    /**
+    * Automaton from example 1, setting is done.
+    * @return Automaton for language a^n b^n c^n
+    */
+    static NDPDA createExample1() {
+        HashSet<String> endStates = new HashSet();
+        endStates.add("f");
+        
+        // Create automaton
+        NDPDA automaton = new NDPDA(3, "s", "S", endStates);
+        
+        // Expansion rules
+        automaton.addRule("s", "S", "q", new ArrayList<>(Arrays.asList("A","A")));
+        automaton.addRule("q", "A", "f", new ArrayList<>(Arrays.asList("a","b")));
+        automaton.addRule("f", "A", "f", new ArrayList<>(Arrays.asList("c")));
+        automaton.addRule("q", "A", "p", new ArrayList<>(Arrays.asList("a","A","b")));
+        automaton.addRule(2,"p", "A", "q", new ArrayList<>(Arrays.asList("A","c")));
+
+        automaton.automatSettingDone();
+        return automaton;
     }
 }
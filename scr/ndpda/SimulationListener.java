@@ -0,0 +1,182 @@
+package ndpdar;
+
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Listener of events during simulation and conversion of automaton.
+ * All methods do nothing by default, so listener implements only
+ * events it is interested in. Automaton uses NO_OP listener unless
+ * other is set, so runs without tracing don't pay for it.
+ * 
+ * @author luciedvorakova
+ */
+public interface SimulationListener {
+    public enum Phase {EXPANSION, POPPING}
+    
+    static final SimulationListener NO_OP = new SimulationListener() {};
+    
+    /**
+    * Simulation started.
+    * @param input input string
+    * @param pd pushdown with start symbol
+    */
+    default void started(String input, DeepPD pd) {}
+    
+    /**
+    * Rule was applied.
+    * @param rule applied rule
+    * @param pd pushdown after application
+    */
+    default void ruleApplied(Rule rule, DeepPD pd) {}
+    
+    /**
+    * Rule couldn't be applied, simulation ends.
+    * @param ruleNum number of the rule
+    * @param reason why the rule couldn't be applied
+    */
+    default void ruleRejected(int ruleNum, String reason) {}
+    
+    /**
+    * Symbol popped from pushdown matched the input.
+    * @param sym matched symbol
+    */
+    default void symbolPopped(char sym) {}
+    
+    /**
+    * Symbol on pushdown doesn't match input, simulation ends.
+    * @param input symbol of input
+    * @param sym symbol on pushdown
+    */
+    default void popMismatch(char input, char sym) {}
+    
+    /**
+    * Input was rejected for other reason than rule or symbol.
+    * @param reason why the input was rejected
+    */
+    default void rejected(String reason) {}
+    
+    /**
+    * Phase of simulation was successfully done.
+    * @param phase finished phase
+    */
+    default void phaseDone(Phase phase) {}
+    
+    /**
+    * Simulation ended.
+    * @param accepted true if the input was accepted
+    */
+    default void finished(Boolean accepted) {}
+    
+    /**
+    * Conversion to reduced automaton started.
+    * @param automaton converted automaton
+    */
+    default void conversionStarted(NDPDA automaton) {}
+    
+    /**
+    * Conversion of rule to reduced automaton started.
+    * @param rule rule of original automaton
+    */
+    default void ruleConverting(Rule rule) {}
+    
+    /**
+    * Rule of reduced automaton was created.
+    * @param reduced description of the created rule
+    */
+    default void ruleConverted(String reduced) {}
+    
+    /**
+    * Conversion to reduced automaton ended.
+    * @param reduced created reduced automaton
+    */
+    default void conversionFinished(NDPDA reduced) {}
+    
+    /**
+    * Listener that reports every event to this listener and then
+    * to the other one.
+    * @param other second listener
+    * @return Listener reporting to both listeners
+    */
+    default SimulationListener andThen(SimulationListener other) {
+        SimulationListener first = this;
+        if(other == NO_OP) {
+            return first;
+        }
+        if(first == NO_OP) {
+            return other;
+        }
+        return new SimulationListener() {
+            @Override
+            public void started(String input, DeepPD pd) {
+                first.started(input, pd);
+                other.started(input, pd);
+            }
+            
+            @Override
+            public void ruleApplied(Rule rule, DeepPD pd) {
+                first.ruleApplied(rule, pd);
+                other.ruleApplied(rule, pd);
+            }
+            
+            @Override
+            public void ruleRejected(int ruleNum, String reason) {
+                first.ruleRejected(ruleNum, reason);
+                other.ruleRejected(ruleNum, reason);
+            }
+            
+            @Override
+            public void symbolPopped(char sym) {
+                first.symbolPopped(sym);
+                other.symbolPopped(sym);
+            }
+            
+            @Override
+            public void popMismatch(char input, char sym) {
+                first.popMismatch(input, sym);
+                other.popMismatch(input, sym);
+            }
+            
+            @Override
+            public void rejected(String reason) {
+                first.rejected(reason);
+                other.rejected(reason);
+            }
+            
+            @Override
+            public void phaseDone(Phase phase) {
+                first.phaseDone(phase);
+                other.phaseDone(phase);
+            }
+            
+            @Override
+            public void finished(Boolean accepted) {
+                first.finished(accepted);
+                other.finished(accepted);
+            }
+            
+            @Override
+            public void conversionStarted(NDPDA automaton) {
+                first.conversionStarted(automaton);
+                other.conversionStarted(automaton);
+            }
+            
+            @Override
+            public void ruleConverting(Rule rule) {
+                first.ruleConverting(rule);
+                other.ruleConverting(rule);
+            }
+            
+            @Override
+            public void ruleConverted(String reduced) {
+                first.ruleConverted(reduced);
+                other.ruleConverted(reduced);
+            }
+            
+            @Override
+            public void conversionFinished(NDPDA reduced) {
+                first.conversionFinished(reduced);
+                other.conversionFinished(reduced);
+            }
+        };
+    }
+}
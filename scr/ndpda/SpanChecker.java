@@ -0,0 +1,236 @@
+package ndpdar;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import ndpdar.NDPDA.Rule;
+import ndpdar.PDSymbol.Type;
+
+/**
+ * Acceptance check that tabulates configurations over parts of the input
+ * instead of searching through the content of the pushdown. Every non-input
+ * symbol on the pushdown is given the span of the input it will be expanded
+ * to. Input symbols between the spans are then known parts of the input
+ * and don't have to be saved.
+ *
+ * Item of the table is state, non-input symbols (at most n of them) and
+ * their spans, so for fixed automaton there are polynomially many items
+ * in length of the input and every item is explored only once. Spans of
+ * pushed symbols are guessed during expansion, so one configuration of the
+ * automaton can be in the table more times with different spans. Unlike
+ * the search, number of explored items doesn't depend on the order in
+ * which rules are tried.
+ *
+ * @author luciedvorakova
+ */
+public class SpanChecker {
+    final private NDPDA automaton;
+
+    public SpanChecker(NDPDA automaton) {
+        this.automaton = automaton;
+    }
+
+    /**
+    * Right side of the rule split by non-input symbols. Input symbols
+    * between two non-input symbols are joined to one block.
+    */
+    static private class Shape {
+        final PDSymbol[] nonInput;
+        final char[][] blocks; // one more than non-input symbols
+        final int[] rest; // rest[i] is length of blocks i .. end
+
+        Shape(Rule rule) {
+            nonInput = new PDSymbol[rule.numOfNonInputSym];
+            blocks = new char[nonInput.length + 1][];
+            StringBuilder sb = new StringBuilder();
+            int j = 0;
+            for(PDSymbol sym : rule.toSymbols) {
+                if(sym.getType() == Type.TERMINAL) {
+                    sb.append(sym.getName());
+                }
+                else {
+                    blocks[j] = sb.toString().toCharArray();
+                    nonInput[j++] = sym;
+                    sb.setLength(0);
+                }
+            }
+            blocks[j] = sb.toString().toCharArray();
+            rest = new int[blocks.length + 1];
+            for(int i = blocks.length - 1; i >= 0; i--) {
+                rest[i] = rest[i + 1] + blocks[i].length;
+            }
+        }
+    }
+
+    /**
+    * Item of the table. Non-input symbols are ordered from the top of
+    * the pushdown, symbol i is expanded to input[spans[2i] .. spans[2i+1]).
+    */
+    static private class Item {
+        final String state;
+        final PDSymbol[] nonInput;
+        final int[] spans;
+
+        final Item parent;
+        final int ruleNum;
+
+        Item(String state, PDSymbol[] nonInput, int[] spans, Item parent, int ruleNum) {
+            this.state = state;
+            this.nonInput = nonInput;
+            this.spans = spans;
+            this.parent = parent;
+            this.ruleNum = ruleNum;
+        }
+
+        @Override
+        public int hashCode() {
+            return (state.hashCode() * 31 + Arrays.hashCode(nonInput)) * 31 + Arrays.hashCode(spans);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            Item other = (Item) obj;
+            return state.equals(other.state) && Arrays.equals(nonInput, other.nonInput)
+                    && Arrays.equals(spans, other.spans);
+        }
+    }
+
+    /**
+    * Data of one check. Shapes are kept only for one check, rules can
+    * be added and their symbols set again between checks.
+    */
+    private class Check {
+        final char[] input;
+        final Deque<Item> toExplore = new ArrayDeque();
+        final HashSet<Item> visited = new HashSet();
+        final HashMap<Rule, Shape> shapes = new HashMap();
+
+        Check(char[] input) {
+            this.input = input;
+        }
+
+        void add(Item item) {
+            if(visited.add(item)) {
+                toExplore.push(item);
+            }
+        }
+
+        /**
+        * Adds items for all ways the rule can expand symbol at given
+        * index of the item.
+        */
+        void expand(Item item, int index, Rule rule) {
+            Shape shape = shapes.computeIfAbsent(rule, Shape::new);
+            int[] inner = new int[shape.nonInput.length * 2];
+            split(item, index, rule, shape, inner, 0, item.spans[2 * index]);
+        }
+
+        /**
+        * Matches block j of the rule at pos and guesses where the span of
+        * the next non-input symbol ends.
+        */
+        private void split(Item item, int index, Rule rule, Shape shape, int[] inner, int j, int pos) {
+            int end = item.spans[2 * index + 1];
+            char[] block = shape.blocks[j];
+            if(pos + block.length > end) {
+                return;
+            }
+            for(int i = 0; i < block.length; i++) {
+                if(input[pos + i] != block[i]) {
+                    return;
+                }
+            }
+            pos += block.length;
+            if(j == shape.nonInput.length) {
+                if(pos == end) {
+                    add(replace(item, index, rule, shape, inner));
+                }
+                return;
+            }
+            inner[2 * j] = pos;
+            for(int spanEnd = pos; spanEnd <= end - shape.rest[j + 1]; spanEnd++) {
+                inner[2 * j + 1] = spanEnd;
+                split(item, index, rule, shape, inner, j + 1, spanEnd);
+            }
+        }
+
+        /**
+        * Item with the symbol at given index replaced by non-input
+        * symbols of the rule with given spans.
+        */
+        private Item replace(Item item, int index, Rule rule, Shape shape, int[] inner) {
+            int m = shape.nonInput.length;
+            PDSymbol[] nonInput = new PDSymbol[item.nonInput.length - 1 + m];
+            System.arraycopy(item.nonInput, 0, nonInput, 0, index);
+            System.arraycopy(shape.nonInput, 0, nonInput, index, m);
+            System.arraycopy(item.nonInput, index + 1, nonInput, index + m, item.nonInput.length - index - 1);
+            int[] spans = new int[nonInput.length * 2];
+            System.arraycopy(item.spans, 0, spans, 0, 2 * index);
+            System.arraycopy(inner, 0, spans, 2 * index, 2 * m);
+            System.arraycopy(item.spans, 2 * index + 2, spans, 2 * (index + m), item.spans.length - 2 * index - 2);
+            return new Item(rule.endState, nonInput, spans, item, rule.number);
+        }
+    }
+
+    /**
+    * Checks if the input is accepted by the automaton.
+    * @param input String of input character
+    * @return List of rule numbers that leads to acceptance,
+    *          null if string isn't accepted by automaton.
+    */
+    public List<Integer> check(String input) {
+        automaton.ensureSettingDone();
+        Check check = new Check(NDPDA.withoutWhitespace(input));
+        int length = check.input.length;
+        PDSymbol[] start = new PDSymbol[]{automaton.getStartPDSym(), PDSymbol.BOTTOM};
+        for(int split = length; split >= 0; split--) {
+            check.add(new Item(automaton.getStartState(), start, new int[]{0, split, split, length}, null, 0));
+        }
+
+        int n = automaton.getN();
+        while(!check.toExplore.isEmpty()) {
+            Item item = check.toExplore.pop();
+            if(isAccepting(item)) {
+                return rules(item);
+            }
+            for(int depth = item.nonInput.length; depth >= 1; depth--) {
+                List<Rule> rules = automaton.applicableRules(item.state, depth, item.nonInput[depth - 1]);
+                for(int i = rules.size() - 1; i >= 0; i--) {
+                    Rule rule = rules.get(i);
+                    if(item.nonInput.length + rule.numOfNonInputSym - 1 > n) {
+                        continue;
+                    }
+                    check.expand(item, depth - 1, rule);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+    * Only one non-input symbol is left and it won't be expanded
+    * to any input, so input symbols on the pushdown are the input.
+    */
+    private boolean isAccepting(Item item) {
+        return item.nonInput.length == 1 && item.spans[0] == item.spans[1]
+                && automaton.isEndState(item.state);
+    }
+
+    private static List<Integer> rules(Item item) {
+        LinkedList<Integer> rules = new LinkedList();
+        for(Item i = item; i.parent != null; i = i.parent) {
+            rules.addFirst(i.ruleNum);
+        }
+        return rules;
+    }
+}
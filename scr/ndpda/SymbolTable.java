@@ -0,0 +1,63 @@
+package ndpdar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Table of interned names. Every distinct name gets dense integer
+ * id (starting with 0) in order in which names were added, so compiled
+ * automaton can compare ids instead of strings and the names
+ * can be recovered for printing.
+ *
+ * @author luciedvorakova
+ */
+public class SymbolTable {
+    final private List<String> names = new ArrayList();
+    final private HashMap<String, Integer> ids = new HashMap();
+
+    /**
+    * Adds name to the table if it isn't there yet.
+    * @param name name to intern
+    * @return Id of the name
+    */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if(id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+    * Adds name to the table with new id even if the name is already
+    * there, id() keeps returning the first id of the name.
+    * @param name name to add
+    * @return New id of the name
+    */
+    public int add(String name) {
+        names.add(name);
+        ids.putIfAbsent(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    /**
+    * Id of already interned name.
+    * @param name interned name
+    * @return Id of the name, -1 if name isn't in table
+    */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
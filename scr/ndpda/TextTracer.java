@@ -0,0 +1,93 @@
+package ndpdar;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import ndpdar.NDPDA.Rule;
+
+/**
+ * Listener that prints the simulation as text, content of the pushdown
+ * after every rule included. Output is buffered and written when the
+ * simulation ends (or flush() is called).
+ * 
+ * @author luciedvorakova
+ */
+public class TextTracer implements SimulationListener {
+    final private PrintWriter out;
+    final private PrintWriter err;
+    
+    public TextTracer() {
+        this(System.out, System.err);
+    }
+    
+    /**
+    * @param out stream for the progress of simulation
+    * @param err stream for the reasons of rejection
+    */
+    public TextTracer(PrintStream out, PrintStream err) {
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out)));
+        this.err = new PrintWriter(new BufferedWriter(new OutputStreamWriter(err)));
+    }
+    
+    @Override
+    public void started(String input, DeepPD pd) {
+        out.println("\nInput string: " + input + "\n");
+        out.println(pd.toString());
+    }
+    
+    @Override
+    public void ruleApplied(Rule rule, DeepPD pd) {
+        out.println("Successfully applied: " + rule);
+        out.println(pd.toString());
+    }
+    
+    @Override
+    public void ruleRejected(int ruleNum, String reason) {
+        err.println(reason);
+    }
+    
+    @Override
+    public void popMismatch(char input, char sym) {
+        err.println(input + " doesn't mach symbol " + sym + " on stack.");
+    }
+    
+    @Override
+    public void rejected(String reason) {
+        err.println(reason);
+    }
+    
+    @Override
+    public void phaseDone(Phase phase) {
+        if(phase == Phase.EXPANSION) {
+            out.println();
+            out.println("Expansion phase done!\n");
+        }
+        else {
+            out.println("Poping phase done!\n");
+        }
+    }
+    
+    @Override
+    public void finished(Boolean accepted) {
+        flush();
+    }
+    
+    @Override
+    public void ruleConverting(Rule rule) {
+        out.println("Converting rule: " + rule);
+    }
+    
+    @Override
+    public void ruleConverted(String reduced) {
+        out.println("\t" + reduced);
+    }
+    
+    /**
+    * Writes buffered output.
+    */
+    public void flush() {
+        out.flush();
+        err.flush();
+    }
+}
@@ -0,0 +1,20 @@
+package ndpdar;
+
+/**
+ * Converts input string to the sequence of input symbols of compiled
+ * automaton, so the search compares only symbol ids. Tokenizer is created
+ * for concrete compiled automaton.
+ * 
+ * @author luciedvorakova
+ */
+public interface Tokenizer {
+    static final int UNKNOWN = -1;
+    
+    /**
+    * Splits input to input symbols.
+    * @param input input string
+    * @return Ids of input symbols, UNKNOWN for part of input that
+    *          isn't any input symbol
+    */
+    int[] tokenize(CharSequence input);
+}
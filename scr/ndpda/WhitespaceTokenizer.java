@@ -0,0 +1,49 @@
+package ndpdar;
+
+import java.util.Arrays;
+
+/**
+ * Tokenizer for automata whose input symbols are whole words. Input
+ * is split on whitespaces, identifiers (letters, digits and _) are one
+ * symbol, every other character is symbol on its own. Word that isn't
+ * input symbol of the automaton is UNKNOWN.
+ * 
+ * @author luciedvorakova
+ */
+public class WhitespaceTokenizer implements Tokenizer {
+    final private SymbolTable symbols;
+    final private int numOfNonInputSym;
+    
+    public WhitespaceTokenizer(CompiledNDPDA automaton) {
+        this.symbols = automaton.getSymbols();
+        this.numOfNonInputSym = automaton.getNumOfNonInputSym();
+    }
+    
+    @Override
+    public int[] tokenize(CharSequence input) {
+        int[] tokens = new int[input.length()];
+        int size = 0;
+        int i = 0;
+        while(i < input.length()) {
+            char c = input.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            if(isIdentifierPart(c)) {
+                while(end < input.length() && isIdentifierPart(input.charAt(end))) {
+                    end++;
+                }
+            }
+            int sym = symbols.id(input.subSequence(i, end).toString());
+            tokens[size++] = sym >= numOfNonInputSym ? sym : UNKNOWN;
+            i = end;
+        }
+        return Arrays.copyOf(tokens, size);
+    }
+    
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
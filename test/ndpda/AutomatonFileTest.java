@@ -0,0 +1,60 @@
+package ndpdar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Broken automaton file has to be reported by IOException.
+ *
+ * @author luciedvorakova
+ */
+public class AutomatonFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void truncatedFile() throws IOException {
+        byte[] bytes = saved();
+        for(int length = 0; length < bytes.length; length++) {
+            Path file = write(Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> AutomatonFile.load(file), "length " + length);
+        }
+    }
+
+    @Test
+    public void corruptedFile() throws IOException {
+        byte[] bytes = saved();
+        Random random = new Random(1);
+        for(int i = 0; i < 2000; i++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[8 + random.nextInt(corrupted.length - 8)] = (byte) random.nextInt();
+            Path file = write(corrupted);
+            try {
+                AutomatonFile.load(file);
+            }
+            catch(IOException e) {
+                assertEquals("Automaton file is corrupted.", e.getMessage());
+            }
+        }
+    }
+
+    private byte[] saved() throws IOException {
+        Path file = dir.resolve("example.ndpd");
+        AutomatonFile.save(RunExample.createExample2().compile(), file);
+        return Files.readAllBytes(file);
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = dir.resolve("broken.ndpd");
+        Files.write(file, bytes);
+        return file;
+    }
+}
@@ -0,0 +1,46 @@
+package ndpdar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compiled search has to accept the same inputs as search on the objects.
+ *
+ * @author luciedvorakova
+ */
+public class CompiledNDPDATest {
+    // Identifier val is also input symbol val of the automaton
+    static final String INPUT = "var val; func { val = val; }";
+
+    @Test
+    public void compiledSearchAgreesWithSearch() {
+        NDPDA automaton = RunExample.createExample2();
+        List<Integer> searched = automaton.search(INPUT);
+        List<Integer> compiled = automaton.compile().simulate(INPUT);
+        assertNotNull(searched);
+        assertNotNull(compiled);
+        assertEquals(true, automaton.simulate(INPUT, compiled));
+    }
+
+    @Test
+    public void examplesAgree() {
+        NDPDA[] automata = {new NDPDAr(RunExample.createExample1()), RunExample.createExample2(),
+                new NDPDAr(RunExample.createExample3())};
+        String[] inputs = {RunExample.EXAMPLE1_INPUT, RunExample.EXAMPLE2_INPUT, RunExample.EXAMPLE3_INPUT};
+        for(int i = 0; i < automata.length; i++) {
+            assertEquals(automata[i].search(inputs[i]) != null, automata[i].simulateHashed(inputs[i]) != null);
+            assertEquals(automata[i].search(inputs[i] + "a") != null, automata[i].simulateHashed(inputs[i] + "a") != null);
+        }
+    }
+
+    @Test
+    public void tokensAreOptIn() {
+        NDPDA automaton = RunExample.createExample2();
+        assertNull(automaton.compileTokens().simulate(INPUT));
+        assertNotNull(automaton.compileTokens().simulate(RunExample.EXAMPLE2_INPUT));
+    }
+}
@@ -0,0 +1,52 @@
+package ndpdar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lazy view has to find the same rules as NDPDAr created in advance.
+ *
+ * @author luciedvorakova
+ */
+public class LazyNDPDArTest {
+
+    @Test
+    public void settingOfOriginalIsDone() {
+        NDPDA raw = new NDPDA(2, "s", "S", new HashSet<>(Arrays.asList("f")));
+        raw.addRule(1, "s", "S", "f", "a");
+        LazyNDPDAr lazy = new LazyNDPDAr(raw);
+        assertNotNull(lazy.simulate("a"));
+        assertEquals(Arrays.asList(1), raw.search("a"));
+    }
+
+    @Test
+    public void concurrentSearches() throws Exception {
+        NDPDA regAuto = RunExample.createExample3();
+        NDPDAr reduced = new NDPDAr(RunExample.createExample3());
+        LazyNDPDAr lazy = new LazyNDPDAr(regAuto, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Integer>>> results = new ArrayList();
+            for(int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> lazy.simulate(RunExample.EXAMPLE3_INPUT)));
+            }
+            for(Future<List<Integer>> result : results) {
+                List<Integer> rules = result.get();
+                assertNotNull(rules);
+                assertEquals(true, reduced.simulate(RunExample.EXAMPLE3_INPUT, rules));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ndpdar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SpanChecker has to see symbols of rules as they are after the last
+ * setting of the automaton.
+ *
+ * @author luciedvorakova
+ */
+public class SpanCheckerTest {
+
+    @Test
+    public void symbolSetByNewRule() {
+        NDPDA automaton = new NDPDA(2, "s", "S", new HashSet<>(Arrays.asList("f")));
+        automaton.addRule(1, "s", "S", "f", "X", "a");
+        SpanChecker checker = new SpanChecker(automaton);
+        assertNull(checker.check("ba"));
+
+        // X becomes non-input symbol
+        automaton.addRule(1, "f", "X", "f", "b");
+        assertEquals(automaton.search("ba"), checker.check("ba"));
+        assertEquals(Arrays.asList(1, 2), checker.check("ba"));
+        assertNull(checker.check("Xa"));
+    }
+}